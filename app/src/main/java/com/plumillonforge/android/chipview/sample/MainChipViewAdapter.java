@@ -1,6 +1,7 @@
 package com.plumillonforge.android.chipview.sample;
 
 import android.content.Context;
+import android.content.res.ColorStateList;
 import android.util.AttributeSet;
 import android.view.View;
 import android.widget.TextView;
@@ -12,6 +13,8 @@ import com.plumillonforge.android.chipview.ChipViewAdapter;
  * Created by Plumillon Forge on 09/10/15.
  */
 public class MainChipViewAdapter extends ChipViewAdapter {
+    private ColorStateList mDefaultTextColors;
+
     public MainChipViewAdapter(Context context) {
         super(context);
     }
@@ -70,7 +73,17 @@ public class MainChipViewAdapter extends ChipViewAdapter {
     public void onLayout(View view, int position) {
         Tag tag = (Tag) getChip(position);
 
-        if (tag.getType() == 2)
-            ((TextView) view.findViewById(android.R.id.text1)).setTextColor(getColor(R.color.blue));
+        // Default layout only, the views are recycled so the default color must be restored
+        if (getLayoutRes(position) == 0) {
+            TextView text = (TextView) view.findViewById(android.R.id.text1);
+
+            if (mDefaultTextColors == null)
+                mDefaultTextColors = text.getTextColors();
+
+            if (tag.getType() == 2)
+                text.setTextColor(getColor(R.color.blue));
+            else
+                text.setTextColor(mDefaultTextColors);
+        }
     }
 }
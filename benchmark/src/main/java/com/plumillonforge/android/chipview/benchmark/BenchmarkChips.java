@@ -0,0 +1,79 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview.benchmark;
+
+import com.plumillonforge.android.chipview.StableIdChip;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Chip lists shared by the benchmarks, generated from a fixed seed so every run measures the same data
+ * Texts have mixed lengths and one Chip out of 50 is oversize (wider than any line)
+ */
+public class BenchmarkChips {
+    private static final String WORDS = "lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod tempor incididunt ut labore";
+
+    private BenchmarkChips() {
+    }
+
+    public static List<BenchmarkChip> create(int count, long seed) {
+        Random random = new Random(seed);
+        List<BenchmarkChip> chips = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++)
+            chips.add(new BenchmarkChip(i, createText(random, i)));
+
+        return chips;
+    }
+
+    public static String createText(Random random, int index) {
+        if (index % 50 == 49) {
+            StringBuilder builder = new StringBuilder();
+
+            while (builder.length() < 200)
+                builder.append(WORDS).append(' ');
+
+            return builder.toString();
+        }
+
+        int start = random.nextInt(WORDS.length() - 20);
+
+        return WORDS.substring(start, start + 3 + random.nextInt(16)).trim();
+    }
+
+    public static class BenchmarkChip implements StableIdChip {
+        private final long mId;
+        private final String mText;
+
+        public BenchmarkChip(long id, String text) {
+            mId = id;
+            mText = text;
+        }
+
+        @Override
+        public long getId() {
+            return mId;
+        }
+
+        @Override
+        public String getText() {
+            return mText;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview.benchmark;
+
+import com.plumillonforge.android.chipview.Chip;
+import com.plumillonforge.android.chipview.ChipDiff;
+import com.plumillonforge.android.chipview.StableIdChip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChipDiff as used by ChipViewAdapter#submitList with stable ids, for each kind of list update
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChipDiffBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int chipCount;
+
+    /**
+     * moves : 10% of the Chip swapped, changes : 10% renamed, churn : 10% removed and 10% inserted
+     */
+    @Param({"moves", "changes", "churn"})
+    public String update;
+
+    private List<Chip> mOldList;
+    private List<Chip> mNewList;
+
+    private final ChipDiff.Callback mCallback = new ChipDiff.Callback() {
+        @Override
+        public Object getKey(Chip chip) {
+            return ((StableIdChip) chip).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(Chip oldChip, Chip newChip) {
+            return oldChip.getText().equals(newChip.getText());
+        }
+
+        @Override
+        public Object getChangePayload(Chip oldChip, Chip newChip) {
+            return null;
+        }
+    };
+
+    private final ChipDiff.UpdateCallback mUpdateCallback = new ChipDiff.UpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            mDispatchedCount += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mDispatchedCount += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mDispatchedCount++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            mDispatchedCount += count;
+        }
+    };
+    private int mDispatchedCount;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mOldList = new ArrayList<Chip>(BenchmarkChips.create(chipCount, 42));
+        mNewList = new ArrayList<>(mOldList);
+        int updateCount = Math.max(1, chipCount / 10);
+
+        for (int i = 0; i < updateCount; i++) {
+            int position = random.nextInt(mNewList.size());
+
+            switch (update) {
+                case "moves":
+                    Collections.swap(mNewList, position, random.nextInt(mNewList.size()));
+                    break;
+
+                case "changes":
+                    BenchmarkChips.BenchmarkChip chip = (BenchmarkChips.BenchmarkChip) mNewList.get(position);
+                    mNewList.set(position, new BenchmarkChips.BenchmarkChip(chip.getId(), chip.getText() + " (" + i + ")"));
+                    break;
+
+                case "churn":
+                    mNewList.remove(position);
+                    mNewList.add(random.nextInt(mNewList.size() + 1), new BenchmarkChips.BenchmarkChip(chipCount + i, BenchmarkChips.createText(random, i)));
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("Unknown update " + update);
+            }
+        }
+    }
+
+    @Benchmark
+    public ChipDiff.Result calculate() {
+        return ChipDiff.calculate(mOldList, mNewList, mCallback);
+    }
+
+    @Benchmark
+    public int calculateAndDispatch() {
+        mDispatchedCount = 0;
+        ChipDiff.calculate(mOldList, mNewList, mCallback).dispatchTo(mUpdateCallback);
+
+        return mDispatchedCount;
+    }
+}
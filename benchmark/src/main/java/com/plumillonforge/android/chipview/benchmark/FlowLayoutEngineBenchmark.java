@@ -0,0 +1,84 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview.benchmark;
+
+import com.plumillonforge.android.chipview.FlowLayoutEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FlowLayoutEngine line breaking as done by ChipView onMeasure
+ * Chip sizes mix two layouts (the default one and a taller one with a close icon) and oversize Chip
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowLayoutEngineBenchmark {
+    private static final int CHAR_WIDTH = 18;
+    private static final int AVAILABLE_WIDTH = 1080;
+    private static final int PADDING = 24;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int chipCount;
+
+    private int[] mWidths;
+    private int[] mHeights;
+    private FlowLayoutEngine mEngine;
+
+    @Setup
+    public void setUp() {
+        List<BenchmarkChips.BenchmarkChip> chips = BenchmarkChips.create(chipCount, 42);
+        mWidths = new int[chipCount];
+        mHeights = new int[chipCount];
+        mEngine = new FlowLayoutEngine();
+
+        for (int i = 0; i < chipCount; i++) {
+            boolean closeLayout = (i % 3 == 0);
+            mWidths[i] = chips.get(i).getText().length() * CHAR_WIDTH + (closeLayout ? 120 : 72);
+            mHeights[i] = (closeLayout ? 120 : 96);
+        }
+    }
+
+    @Benchmark
+    public int compute() {
+        return mEngine.compute(mWidths, mHeights, chipCount, AVAILABLE_WIDTH, PADDING, PADDING, PADDING, PADDING);
+    }
+
+    /**
+     * A new engine each time, as a background thread predicting a list item height would
+     */
+    @Benchmark
+    public int computeWithNewEngine() {
+        return new FlowLayoutEngine().compute(mWidths, mHeights, chipCount, AVAILABLE_WIDTH, PADDING, PADDING, PADDING, PADDING);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+import android.graphics.drawable.StateListDrawable;
+import android.support.annotation.ColorInt;
+import android.support.annotation.DrawableRes;
+import android.support.v4.util.LruCache;
+import android.util.StateSet;
+
+/**
+ * Cache of Chip background ConstantState, each Chip gets its own Drawable from newDrawable()
+ * Selectors are keyed by (color, selected color, corner radius) and resources by (id, configuration)
+ * so a night mode, density or locale change never gets a stale drawable, both are LRU bounded
+ * Must be used from the UI thread
+ */
+public class ChipBackgroundCache {
+    private static final int DEFAULT_MAX_SIZE = 64;
+    private static ChipBackgroundCache sDefault;
+
+    private LruCache<SelectorKey, Drawable.ConstantState> mSelectorCache;
+    private LruCache<ResourceKey, Drawable.ConstantState> mResourceCache;
+    private SelectorKey mLookupKey;
+    private ResourceKey mResourceLookupKey;
+    private int mHitCount;
+    private int mMissCount;
+
+    public ChipBackgroundCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize entries kept for each of the selector and resource caches
+     */
+    public ChipBackgroundCache(int maxSize) {
+        mSelectorCache = new LruCache<>(maxSize);
+        mResourceCache = new LruCache<>(maxSize);
+        mLookupKey = new SelectorKey();
+        mResourceLookupKey = new ResourceKey();
+    }
+
+    /**
+     * Cache shared by every ChipViewAdapter which doesn't set its own
+     *
+     * @return ChipBackgroundCache
+     */
+    public static ChipBackgroundCache getDefault() {
+        if (sDefault == null)
+            sDefault = new ChipBackgroundCache();
+
+        return sDefault;
+    }
+
+    /**
+     * Return a pressed / focused selector with rounded corners
+     *
+     * @param color
+     * @param colorSelected
+     * @param cornerRadius
+     * @return Drawable
+     */
+    public Drawable getSelector(@ColorInt int color, @ColorInt int colorSelected, int cornerRadius) {
+        mLookupKey.set(color, colorSelected, cornerRadius);
+        Drawable.ConstantState state = mSelectorCache.get(mLookupKey);
+
+        if (state != null) {
+            mHitCount++;
+
+            return state.newDrawable();
+        }
+
+        mMissCount++;
+        Drawable selector = createSelector(color, colorSelected, cornerRadius);
+        mSelectorCache.put(new SelectorKey().set(color, colorSelected, cornerRadius), selector.getConstantState());
+
+        return selector.getConstantState().newDrawable();
+    }
+
+    /**
+     * Return the drawable for this resource id in the configuration of these resources
+     *
+     * @param resources
+     * @param drawableRes
+     * @return Drawable
+     */
+    public Drawable getDrawable(Resources resources, @DrawableRes int drawableRes) {
+        Configuration configuration = resources.getConfiguration();
+        Drawable.ConstantState state = mResourceCache.get(mResourceLookupKey.set(drawableRes, configuration));
+
+        if (state != null) {
+            mHitCount++;
+
+            return state.newDrawable(resources);
+        }
+
+        mMissCount++;
+        Drawable drawable = resources.getDrawable(drawableRes);
+        state = drawable.getConstantState();
+
+        if (state == null)
+            return drawable;
+
+        mResourceCache.put(new ResourceKey().set(drawableRes, new Configuration(configuration)), state);
+
+        return state.newDrawable(resources);
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    public int size() {
+        return mSelectorCache.size() + mResourceCache.size();
+    }
+
+    public void resetCounters() {
+        mHitCount = 0;
+        mMissCount = 0;
+    }
+
+    public void clear() {
+        mSelectorCache.evictAll();
+        mResourceCache.evictAll();
+    }
+
+    private static Drawable createSelector(int color, int colorSelected, int cornerRadius) {
+        // Default state
+        GradientDrawable background = new GradientDrawable();
+        background.setShape(GradientDrawable.RECTANGLE);
+        background.setCornerRadius(cornerRadius);
+        background.setColor(color);
+
+        // Selected state
+        GradientDrawable selectedBackground = new GradientDrawable();
+        selectedBackground.setShape(GradientDrawable.RECTANGLE);
+        selectedBackground.setCornerRadius(cornerRadius);
+        selectedBackground.setColor(colorSelected);
+
+        StateListDrawable stateListDrawable = new StateListDrawable();
+        stateListDrawable.addState(new int[]{android.R.attr.state_pressed}, selectedBackground);
+        stateListDrawable.addState(new int[]{android.R.attr.state_focused}, selectedBackground);
+        stateListDrawable.addState(new int[]{android.R.attr.state_selected}, selectedBackground);
+        stateListDrawable.addState(StateSet.WILD_CARD, background);
+
+        return stateListDrawable;
+    }
+
+    private static final class SelectorKey {
+        private int mColor;
+        private int mColorSelected;
+        private int mCornerRadius;
+
+        SelectorKey set(int color, int colorSelected, int cornerRadius) {
+            mColor = color;
+            mColorSelected = colorSelected;
+            mCornerRadius = cornerRadius;
+
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SelectorKey))
+                return false;
+
+            SelectorKey key = (SelectorKey) o;
+
+            return (mColor == key.mColor && mColorSelected == key.mColorSelected && mCornerRadius == key.mCornerRadius);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * mColor + mColorSelected) + mCornerRadius;
+        }
+    }
+
+    private static final class ResourceKey {
+        private int mDrawableRes;
+        private Configuration mConfiguration;
+
+        ResourceKey set(int drawableRes, Configuration configuration) {
+            mDrawableRes = drawableRes;
+            mConfiguration = configuration;
+
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ResourceKey))
+                return false;
+
+            ResourceKey key = (ResourceKey) o;
+
+            return (mDrawableRes == key.mDrawableRes && mConfiguration.equals(key.mConfiguration));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mDrawableRes + mConfiguration.hashCode();
+        }
+    }
+}
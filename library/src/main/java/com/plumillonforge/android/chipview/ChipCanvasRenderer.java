@@ -0,0 +1,297 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.util.SparseArray;
+import android.view.View;
+import android.widget.FrameLayout;
+
+/**
+ * Measure and draw Chip directly on the ChipView canvas, without any Chip view
+ * Uses the default Chip style of the adapter : spacing, padding, corner radius, text size and background colors or res
+ */
+class ChipCanvasRenderer {
+    private static final int[] STATE_PRESSED = new int[]{android.R.attr.state_pressed};
+    private static final int[] STATE_SELECTED = new int[]{android.R.attr.state_selected};
+    private static final int[] STATE_DEFAULT = new int[0];
+
+    private ChipViewAdapter mAdapter;
+    private TextPaint mTextPaint;
+    private Paint mBackgroundPaint;
+    private Paint.FontMetricsInt mFontMetrics;
+    private SparseArray<Drawable> mBackgroundDrawables;
+    private Drawable mOverflowBackground;
+    private final RectF mChipRect = new RectF();
+    private final Rect mClipRect = new Rect();
+
+    ChipCanvasRenderer(ChipViewAdapter adapter) {
+        mAdapter = adapter;
+        mBackgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mFontMetrics = new Paint.FontMetricsInt();
+        mBackgroundDrawables = new SparseArray<>();
+    }
+
+    /**
+     * Fill Chip sizes, margins included, from the text metrics
+     *
+     * @param count
+     * @param widths
+     * @param heights
+     */
+    void measure(int count, int[] widths, int[] heights) {
+        TextPaint paint = getTextPaint();
+        int height = measureHeight();
+        int sideWidth = 2 * mAdapter.getChipSidePadding() + mAdapter.getChipSpacing();
+
+        for (int i = 0; i < count; i++) {
+            Chip chip = mAdapter.getChip(i);
+            CharSequence text = (chip != null ? chip.getText() : null);
+            float textWidth = 0;
+
+            if (text != null) {
+                textWidth = mAdapter.getPrecomputedTextWidth(0, text);
+
+                if (textWidth < 0)
+                    textWidth = Layout.getDesiredWidth(text, paint);
+            }
+
+            widths[i] = sideWidth + (int) Math.ceil(textWidth);
+            heights[i] = height;
+        }
+    }
+
+    /**
+     * Width of a Chip showing this text, margins included
+     *
+     * @param text
+     * @return int
+     */
+    int measureWidth(CharSequence text) {
+        return 2 * mAdapter.getChipSidePadding() + mAdapter.getChipSpacing() + (int) Math.ceil(Layout.getDesiredWidth(text, getTextPaint()));
+    }
+
+    /**
+     * Height of every Chip, margins included
+     *
+     * @return int
+     */
+    int measureHeight() {
+        getTextPaint();
+
+        return (mFontMetrics.bottom - mFontMetrics.top) + 2 * mAdapter.getChipPadding() + mAdapter.getLineSpacing();
+    }
+
+    /**
+     * Draw the Chip crossing the canvas clip
+     *
+     * @param canvas
+     * @param engine  the Chip positions
+     * @param widths
+     * @param heights
+     * @param pressedPosition the Chip drawn with its selected color, -1 if none
+     * @param selection the selected Chip, drawn with their selected color too
+     */
+    void draw(Canvas canvas, FlowLayoutEngine engine, int[] widths, int[] heights, int pressedPosition, ChipSelection selection) {
+        TextPaint paint = getTextPaint();
+
+        if (!canvas.getClipBounds(mClipRect))
+            return;
+
+        // Only the lines crossing the clip rect
+        for (int line = Math.max(0, findLine(mClipRect.top, engine)); line < engine.getLineCount() && engine.getLineTop(line) < mClipRect.bottom; line++) {
+            for (int i = engine.getLineStart(line); i < engine.getLineEnd(line); i++) {
+                if (widths[i] < 0)
+                    continue;
+
+                int left = engine.getLeft(i);
+                int top = engine.getTop(i);
+                int right = left + widths[i] - mAdapter.getChipSpacing();
+                int bottom = top + heights[i] - mAdapter.getLineSpacing();
+
+                if (bottom <= mClipRect.top || top >= mClipRect.bottom || right <= mClipRect.left || left >= mClipRect.right)
+                    continue;
+
+                Chip chip = mAdapter.getChip(i);
+
+                if (chip == null)
+                    continue;
+
+                if (mAdapter.hasBackground())
+                    drawBackground(canvas, i, left, top, right, bottom, (i == pressedPosition), selection.isSelected(i));
+
+                if (chip.getText() != null) {
+                    CharSequence text = chip.getText();
+                    canvas.drawText(text, 0, text.length(), left + mAdapter.getChipSidePadding(), top + mAdapter.getChipPadding() - mFontMetrics.top, paint);
+                }
+            }
+        }
+
+        if (engine.getOverflowCount() > 0)
+            drawOverflow(canvas, engine, paint);
+    }
+
+    private void drawOverflow(Canvas canvas, FlowLayoutEngine engine, TextPaint paint) {
+        CharSequence text = mAdapter.getOverflowText(engine.getOverflowCount());
+        int left = engine.getOverflowLeft();
+        int top = engine.getOverflowTop();
+        int right = left + measureWidth(text) - mAdapter.getChipSpacing();
+        int bottom = top + measureHeight() - mAdapter.getLineSpacing();
+
+        if (mAdapter.hasBackground()) {
+            if (mOverflowBackground == null)
+                mOverflowBackground = mAdapter.generateOverflowBackground();
+
+            mOverflowBackground.setState(STATE_DEFAULT);
+            mOverflowBackground.setBounds(left, top, right, bottom);
+            mOverflowBackground.draw(canvas);
+        }
+
+        canvas.drawText(text, 0, text.length(), left + mAdapter.getChipSidePadding(), top + mAdapter.getChipPadding() - mFontMetrics.top, paint);
+    }
+
+    private void drawBackground(Canvas canvas, int position, int left, int top, int right, int bottom, boolean pressed, boolean selected) {
+        int backgroundRes = mAdapter.resolveBackgroundRes(position);
+
+        if (backgroundRes != 0) {
+            Drawable drawable = mBackgroundDrawables.get(backgroundRes);
+
+            if (drawable == null) {
+                drawable = mAdapter.getBackgroundCache().getDrawable(mAdapter.getContext().getResources(), backgroundRes);
+                mBackgroundDrawables.put(backgroundRes, drawable);
+            }
+
+            drawable.setState(pressed ? STATE_PRESSED : (selected ? STATE_SELECTED : STATE_DEFAULT));
+            drawable.setBounds(left, top, right, bottom);
+            drawable.draw(canvas);
+        } else {
+            float radius = mAdapter.getChipCornerRadius();
+            mBackgroundPaint.setColor(pressed || selected ? mAdapter.resolveBackgroundColorSelected(position) : mAdapter.resolveBackgroundColor(position));
+            mChipRect.set(left, top, right, bottom);
+            canvas.drawRoundRect(mChipRect, radius, radius, mBackgroundPaint);
+        }
+    }
+
+    /**
+     * Return the Chip at this point, -1 if none
+     * The line is found by its top, then the Chip by its left, both in O(log n)
+     *
+     * @param x
+     * @param y
+     * @param engine
+     * @param widths
+     * @param heights
+     * @return int
+     */
+    int findChipAt(float x, float y, FlowLayoutEngine engine, int[] widths, int[] heights) {
+        int line = findLine(y, engine);
+
+        if (line < 0)
+            return -1;
+
+        int i = findChipInLine(x, engine.getLineStart(line), engine.getLineEnd(line), engine, widths);
+
+        if (i < 0)
+            return -1;
+
+        int left = engine.getLeft(i);
+        int top = engine.getTop(i);
+
+        if (x < left + widths[i] - mAdapter.getChipSpacing() && y >= top && y < top + heights[i] - mAdapter.getLineSpacing())
+            return i;
+
+        return -1;
+    }
+
+    /**
+     * Return the last line starting at or above y, -1 if none, line tops are increasing
+     */
+    private static int findLine(float y, FlowLayoutEngine engine) {
+        int low = 0;
+        int high = engine.getLineCount() - 1;
+        int found = -1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+
+            if (engine.getLineTop(mid) <= y) {
+                found = mid;
+                low = mid + 1;
+            } else
+                high = mid - 1;
+        }
+
+        return found;
+    }
+
+    /**
+     * Return the last Chip of the line starting at or before x, -1 if none
+     * Gone Chip have no position and are skipped, the lefts of the others are increasing
+     */
+    private static int findChipInLine(float x, int start, int end, FlowLayoutEngine engine, int[] widths) {
+        int low = start;
+        int high = end - 1;
+        int found = -1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int i = mid;
+
+            while (i >= low && widths[i] < 0)
+                i--;
+
+            if (i < low)
+                low = mid + 1;
+            else if (engine.getLeft(i) <= x) {
+                found = i;
+                low = mid + 1;
+            } else
+                high = i - 1;
+        }
+
+        return found;
+    }
+
+    /**
+     * Forget the text style and backgrounds, to call when the adapter style changed
+     */
+    void invalidate() {
+        mTextPaint = null;
+        mBackgroundDrawables.clear();
+        mOverflowBackground = null;
+    }
+
+    private TextPaint getTextPaint() {
+        if (mTextPaint == null) {
+            // The default Chip text view gives the theme text appearance and the adapter text size
+            View view = mAdapter.createView(new FrameLayout(mAdapter.getContext()), 0);
+            ChipViewHolder holder = ChipViewHolder.from(view);
+            mAdapter.bindStyle(view, holder);
+            mTextPaint = new TextPaint(holder.text.getPaint());
+            mTextPaint.setColor(holder.text.getCurrentTextColor());
+            mTextPaint.getFontMetricsInt(mFontMetrics);
+        }
+
+        return mTextPaint;
+    }
+}
@@ -0,0 +1,365 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compute the operations turning a Chip list into another one
+ * Chip are matched by key, unmatched ones are removed or inserted and matched ones out of the
+ * longest increasing subsequence are moved, so the result is close to minimal in O(n log n)
+ * Android free so it can run on any thread
+ */
+public class ChipDiff {
+    static final int REMOVED = 0;
+    static final int MOVED = 1;
+    static final int INSERTED = 2;
+    static final int CHANGED = 3;
+
+    /**
+     * Tell how Chip are matched between the old and the new list
+     */
+    public interface Callback {
+        /**
+         * Return the key identifying a Chip in both lists
+         *
+         * @param chip
+         * @return Object, must implement equals and hashCode
+         */
+        Object getKey(Chip chip);
+
+        /**
+         * Whether or not two matched Chip display the same content
+         *
+         * @param oldChip
+         * @param newChip
+         * @return boolean
+         */
+        boolean areContentsTheSame(Chip oldChip, Chip newChip);
+
+        /**
+         * Return what changed between two matched Chip whose contents differ, given to onChanged
+         *
+         * @param oldChip
+         * @param newChip
+         * @return Object or null for a full bind
+         */
+        Object getChangePayload(Chip oldChip, Chip newChip);
+    }
+
+    /**
+     * Receive the operations, positions are valid at the time each operation is dispatched
+     */
+    public interface UpdateCallback {
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onMoved(int fromPosition, int toPosition);
+
+        void onChanged(int position, int count, Object payload);
+    }
+
+    private ChipDiff() {
+    }
+
+    public static Result calculate(List<Chip> oldList, List<Chip> newList, Callback callback) {
+        int oldSize = oldList.size();
+        int newSize = newList.size();
+        int[] oldToNew = new int[oldSize];
+        int[] newToOld = new int[newSize];
+        Arrays.fill(oldToNew, -1);
+        Arrays.fill(newToOld, -1);
+
+        // Old positions by key, duplicates are chained and matched in order
+        HashMap<Object, Integer> firstOld = new HashMap<>(oldSize * 2);
+        int[] nextOld = new int[oldSize];
+
+        for (int i = oldSize - 1; i >= 0; i--) {
+            Integer next = firstOld.put(callback.getKey(oldList.get(i)), i);
+            nextOld[i] = (next != null ? next : -1);
+        }
+
+        for (int j = 0; j < newSize; j++) {
+            Object key = callback.getKey(newList.get(j));
+            Integer i = firstOld.get(key);
+
+            if (i != null) {
+                newToOld[j] = i;
+                oldToNew[i] = j;
+
+                if (nextOld[i] >= 0)
+                    firstOld.put(key, nextOld[i]);
+                else
+                    firstOld.remove(key);
+            }
+        }
+
+        Result result = new Result();
+
+        // Removals from the end so the remaining positions stay valid
+        int i = oldSize - 1;
+
+        while (i >= 0) {
+            if (oldToNew[i] >= 0) {
+                i--;
+                continue;
+            }
+
+            int end = i;
+
+            while (i >= 0 && oldToNew[i] < 0)
+                i--;
+
+            result.add(REMOVED, i + 1, end - i, 0);
+        }
+
+        // Matched Chip in their current order, identified by their new position
+        int matchedCount = 0;
+        int[] current = new int[oldSize];
+
+        for (i = 0; i < oldSize; i++) {
+            if (oldToNew[i] >= 0)
+                current[matchedCount++] = oldToNew[i];
+        }
+
+        // Chip inside the longest increasing subsequence stay, the others move right after their settled predecessor
+        // Going through the new positions in order, the predecessor is always the last settled Chip before,
+        // so a moved Chip is appended to the block following its predecessor slot.
+        // Slot s + 1 holds the Chip at matched index s if it didn't move plus its block, slot 0 is the block at the front.
+        // Current positions are prefix sums of the slot sizes, kept in a Fenwick tree : O(log n) per move
+        boolean[] settled = new boolean[newSize];
+
+        for (int index : longestIncreasingSubsequence(current, matchedCount))
+            settled[current[index]] = true;
+
+        int[] slotOf = new int[newSize];
+        int[] blockIndexOf = new int[newSize];
+        boolean[] slotHasChip = new boolean[matchedCount + 1];
+        int[] blockSizes = new int[matchedCount + 1];
+        int[] tree = new int[matchedCount + 2];
+
+        for (int s = 0; s < matchedCount; s++) {
+            slotOf[current[s]] = s + 1;
+            blockIndexOf[current[s]] = -1;
+            slotHasChip[s + 1] = true;
+            addToTree(tree, s + 1, 1);
+        }
+
+        int predecessor = -1;
+
+        for (int j = 0; j < newSize; j++) {
+            if (newToOld[j] < 0)
+                continue;
+
+            if (!settled[j]) {
+                // Not moved yet, so still the Chip of its slot
+                int slot = slotOf[j];
+                int from = sumTree(tree, slot - 1);
+                slotHasChip[slot] = false;
+                addToTree(tree, slot, -1);
+
+                int targetSlot = (predecessor < 0 ? 0 : slotOf[predecessor]);
+                int to = (predecessor < 0 ? 0 : positionOf(predecessor, tree, slotOf, blockIndexOf, slotHasChip) + 1);
+                slotOf[j] = targetSlot;
+                blockIndexOf[j] = blockSizes[targetSlot]++;
+                addToTree(tree, targetSlot, 1);
+                settled[j] = true;
+
+                if (from != to)
+                    result.add(MOVED, from, 1, to);
+            }
+
+            predecessor = j;
+        }
+
+        // Insertions in ascending order land on their final position
+        int j = 0;
+
+        while (j < newSize) {
+            if (newToOld[j] >= 0) {
+                j++;
+                continue;
+            }
+
+            int start = j;
+
+            while (j < newSize && newToOld[j] < 0)
+                j++;
+
+            result.add(INSERTED, start, j - start, 0);
+        }
+
+        // Content changes on final positions, consecutive ones with the same payload in one range
+        int changeStart = -1;
+        Object changePayload = null;
+
+        for (j = 0; j <= newSize; j++) {
+            boolean changed = (j < newSize && newToOld[j] >= 0 && !callback.areContentsTheSame(oldList.get(newToOld[j]), newList.get(j)));
+            Object payload = (changed ? callback.getChangePayload(oldList.get(newToOld[j]), newList.get(j)) : null);
+
+            if (changeStart >= 0 && (!changed || payload != changePayload)) {
+                result.add(CHANGED, changeStart, j - changeStart, 0, changePayload);
+                changeStart = -1;
+            }
+
+            if (changed && changeStart < 0) {
+                changeStart = j;
+                changePayload = payload;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Current position of a settled Chip
+     */
+    private static int positionOf(int chip, int[] tree, int[] slotOf, int[] blockIndexOf, boolean[] slotHasChip) {
+        int slot = slotOf[chip];
+        int position = (slot > 0 ? sumTree(tree, slot - 1) : 0);
+
+        if (blockIndexOf[chip] < 0)
+            return position;
+
+        return position + (slotHasChip[slot] ? 1 : 0) + blockIndexOf[chip];
+    }
+
+    /**
+     * Fenwick tree over the slots, index 0 is stored at 1
+     */
+    private static void addToTree(int[] tree, int slot, int value) {
+        for (int i = slot + 1; i < tree.length; i += i & -i)
+            tree[i] += value;
+    }
+
+    /**
+     * Sum of the slot sizes from 0 to slot included
+     */
+    private static int sumTree(int[] tree, int slot) {
+        int sum = 0;
+
+        for (int i = slot + 1; i > 0; i -= i & -i)
+            sum += tree[i];
+
+        return sum;
+    }
+
+    /**
+     * Patience sorting, return the indexes of one longest increasing subsequence
+     */
+    private static int[] longestIncreasingSubsequence(int[] values, int size) {
+        int[] tails = new int[size];
+        int[] previous = new int[size];
+        int length = 0;
+
+        for (int i = 0; i < size; i++) {
+            int low = 0;
+            int high = length;
+
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+
+                if (values[tails[mid]] < values[i])
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+
+            previous[i] = (low > 0 ? tails[low - 1] : -1);
+            tails[low] = i;
+
+            if (low == length)
+                length++;
+        }
+
+        int[] result = new int[length];
+
+        for (int i = length - 1, k = (length > 0 ? tails[length - 1] : -1); i >= 0; i--, k = previous[k])
+            result[i] = k;
+
+        return result;
+    }
+
+    /**
+     * Operations to dispatch, in order
+     */
+    public static class Result {
+        private int[] mOperations = new int[16];
+        private int mSize;
+        // Payload of each operation, allocated with the first non null one
+        private ArrayList<Object> mPayloads;
+
+        void add(int type, int position, int count, int toPosition, Object payload) {
+            if (payload != null && mPayloads == null)
+                mPayloads = new ArrayList<>();
+
+            if (mPayloads != null) {
+                while (mPayloads.size() < mSize / 4)
+                    mPayloads.add(null);
+
+                mPayloads.add(payload);
+            }
+
+            add(type, position, count, toPosition);
+        }
+
+        void add(int type, int position, int count, int toPosition) {
+            if (mSize + 4 > mOperations.length)
+                mOperations = Arrays.copyOf(mOperations, mOperations.length * 2);
+
+            mOperations[mSize++] = type;
+            mOperations[mSize++] = position;
+            mOperations[mSize++] = count;
+            mOperations[mSize++] = toPosition;
+        }
+
+        /**
+         * How many operations the diff produced
+         *
+         * @return int
+         */
+        public int getOperationCount() {
+            return mSize / 4;
+        }
+
+        public void dispatchTo(UpdateCallback callback) {
+            for (int i = 0; i < mSize; i += 4) {
+                switch (mOperations[i]) {
+                    case REMOVED:
+                        callback.onRemoved(mOperations[i + 1], mOperations[i + 2]);
+                        break;
+
+                    case MOVED:
+                        callback.onMoved(mOperations[i + 1], mOperations[i + 3]);
+                        break;
+
+                    case INSERTED:
+                        callback.onInserted(mOperations[i + 1], mOperations[i + 2]);
+                        break;
+
+                    case CHANGED:
+                        callback.onChanged(mOperations[i + 1], mOperations[i + 2], (mPayloads != null && i / 4 < mPayloads.size() ? mPayloads.get(i / 4) : null));
+                        break;
+                }
+            }
+        }
+    }
+}
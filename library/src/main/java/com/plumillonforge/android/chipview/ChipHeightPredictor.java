@@ -0,0 +1,191 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.widget.FrameLayout;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Predict the height of a ChipView showing a Chip list from text metrics, without any Chip view
+ * Uses the overall style of the adapter, per position overrides are ignored since the list isn't the adapter one
+ * Results are cached by Chip texts, width and line limit, texts are copied so no list is referenced, main thread only
+ */
+class ChipHeightPredictor {
+    static final int MAX_CACHED_HEIGHTS = 64;
+
+    private ChipViewAdapter mAdapter;
+    private ChipSizeEstimator mSizeEstimator;
+    private FrameLayout mParent;
+    private FlowLayoutEngine mLayoutEngine;
+    private int[] mWidths;
+    private int[] mHeights;
+    private String[] mTexts;
+    private final Key mLookupKey = new Key();
+    private final LinkedHashMap<Key, Integer> mHeightCache = new LinkedHashMap<Key, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+            return (size() > MAX_CACHED_HEIGHTS);
+        }
+    };
+
+    ChipHeightPredictor(ChipViewAdapter adapter) {
+        mAdapter = adapter;
+        mSizeEstimator = new ChipSizeEstimator(adapter);
+        mLayoutEngine = new FlowLayoutEngine();
+        mWidths = new int[0];
+        mHeights = new int[0];
+        mTexts = new String[0];
+    }
+
+    /**
+     * Predict the height taken by the Chip lines, padding excluded
+     * Lists with the same texts share a prediction, a list changed in place is predicted again
+     *
+     * @param chips
+     * @param width    available width, padding excluded
+     * @param maxLines 0 for no limit
+     * @return int
+     */
+    int predictHeight(List<Chip> chips, int width, int maxLines) {
+        int count = (chips != null ? chips.size() : 0);
+        long contentHash = collectTexts(chips, count);
+        Integer cached = mHeightCache.get(mLookupKey.set(contentHash, mTexts, count, width, maxLines));
+
+        if (cached != null)
+            return cached;
+
+        int height = computeHeight(chips, count, width, maxLines);
+        mHeightCache.put(new Key().set(contentHash, Arrays.copyOf(mTexts, count), count, width, maxLines), height);
+
+        return height;
+    }
+
+    /**
+     * Forget every prediction
+     */
+    void clear() {
+        mHeightCache.clear();
+    }
+
+    /**
+     * Forget every prediction and text metrics, to call when the adapter style changed
+     */
+    void invalidate() {
+        clear();
+        mSizeEstimator.invalidate();
+    }
+
+    private int computeHeight(List<Chip> chips, int count, int width, int maxLines) {
+        if (count == 0)
+            return 0;
+
+        if (mParent == null)
+            mParent = new FrameLayout(mAdapter.getContext());
+
+        if (mWidths.length < count) {
+            mWidths = new int[count];
+            mHeights = new int[count];
+        }
+
+        int viewType = mAdapter.getChipLayoutRes();
+        int height = mSizeEstimator.estimateTypeHeight(mParent, viewType);
+
+        for (int i = 0; i < count; i++) {
+            Chip chip = chips.get(i);
+            mWidths[i] = mSizeEstimator.estimateWidth(mParent, viewType, (chip != null ? chip.getText() : null));
+            mHeights[i] = height;
+        }
+
+        if (maxLines > 0)
+            mLayoutEngine.setMaxLines(maxLines, mSizeEstimator.estimateWidth(mParent, viewType, mAdapter.getOverflowText(count)), height);
+        else
+            mLayoutEngine.setMaxLines(0, 0, 0);
+
+        return mLayoutEngine.compute(mWidths, mHeights, count, width, 0, 0, 0, 0);
+    }
+
+    /**
+     * Copy the Chip texts, the only per Chip input of the prediction, into the lookup buffer
+     *
+     * @return 64 bits hash of the texts, only used for bucketing
+     */
+    private long collectTexts(List<Chip> chips, int count) {
+        if (mTexts.length < count)
+            mTexts = new String[count];
+
+        long hash = 1;
+
+        for (int i = 0; i < count; i++) {
+            Chip chip = chips.get(i);
+            CharSequence text = (chip != null ? chip.getText() : null);
+            String string = (text != null ? text.toString() : null);
+            mTexts[i] = string;
+            hash = 31 * hash + (string != null ? string.hashCode() : 0);
+            hash = 31 * hash + (string != null ? string.length() : -1);
+        }
+
+        return hash;
+    }
+
+    private static final class Key {
+        private long mContentHash;
+        private String[] mTexts;
+        private int mCount;
+        private int mWidth;
+        private int mMaxLines;
+
+        Key set(long contentHash, String[] texts, int count, int width, int maxLines) {
+            mContentHash = contentHash;
+            mTexts = texts;
+            mCount = count;
+            mWidth = width;
+            mMaxLines = maxLines;
+
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+
+            Key key = (Key) o;
+
+            if (mContentHash != key.mContentHash || mCount != key.mCount || mWidth != key.mWidth || mMaxLines != key.mMaxLines)
+                return false;
+
+            for (int i = 0; i < mCount; i++) {
+                String text = mTexts[i];
+                String other = key.mTexts[i];
+
+                if (text == null ? other != null : !text.equals(other))
+                    return false;
+            }
+
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * (int) (mContentHash ^ (mContentHash >>> 32)) + mCount) + mWidth) + mMaxLines;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.List;
+
+/**
+ * Bridge exposing a ChipViewAdapter to a RecyclerView, meant to be used with a FlowLayoutManager
+ * Views are created and bound by the ChipViewAdapter so layouts, spacing, padding and backgrounds are the same as in ChipView
+ * Listens to the ChipViewAdapter only while attached to a RecyclerView, so a dropped bridge doesn't leak
+ */
+public class ChipRecyclerAdapter extends RecyclerView.Adapter<ChipRecyclerAdapter.ViewHolder> {
+    private ChipViewAdapter mAdapter;
+    private OnChipClickListener mListener;
+    private int mAttachedCount;
+    private final View.OnClickListener mChipClickListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            ChipViewHolder holder = ChipViewHolder.from(v);
+
+            if (mListener != null && holder != null && holder.chip != null)
+                mListener.onChipClick(holder.chip);
+        }
+    };
+    private final ChipViewAdapter.Observer mAdapterObserver = new ChipViewAdapter.Observer() {
+        @Override
+        public void onChanged() {
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onChipRangeInserted(int positionStart, int itemCount) {
+            notifyItemRangeInserted(positionStart, itemCount);
+        }
+
+        @Override
+        public void onChipRangeRemoved(int positionStart, int itemCount) {
+            notifyItemRangeRemoved(positionStart, itemCount);
+        }
+
+        @Override
+        public void onChipRangeChanged(int positionStart, int itemCount, Object payload) {
+            notifyItemRangeChanged(positionStart, itemCount, payload);
+        }
+
+        @Override
+        public void onChipMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(fromPosition, toPosition);
+        }
+    };
+
+    public ChipRecyclerAdapter(ChipViewAdapter adapter) {
+        mAdapter = adapter;
+        setHasStableIds(adapter.hasStableIds());
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        // The RecyclerView reads the whole adapter when attached, missed notifications don't matter
+        if (mAttachedCount++ == 0)
+            mAdapter.registerObserver(mAdapterObserver);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        if (--mAttachedCount == 0)
+            mAdapter.unregisterObserver(mAdapterObserver);
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return new ViewHolder(mAdapter.createView(parent, viewType));
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        mAdapter.bindView(holder.itemView, position);
+        setChipClickable(holder);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position, List<Object> payloads) {
+        mAdapter.bindView(holder.itemView, position, payloads);
+        setChipClickable(holder);
+    }
+
+    private void setChipClickable(ViewHolder holder) {
+        holder.itemView.setOnClickListener(mListener != null ? mChipClickListener : null);
+        holder.itemView.setClickable(mListener != null);
+        holder.itemView.setFocusable(mListener != null);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mAdapter.getViewType(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return (mAdapter.hasStableIds() ? mAdapter.getChipId(mAdapter.getChip(position)) : RecyclerView.NO_ID);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mAdapter.count();
+    }
+
+    public ChipViewAdapter getChipViewAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * Set Chip onClick listener
+     *
+     * @param listener
+     */
+    public void setOnChipClickListener(OnChipClickListener listener) {
+        boolean clickableChanged = ((mListener == null) != (listener == null));
+        mListener = listener;
+
+        if (clickableChanged)
+            notifyDataSetChanged();
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        public ViewHolder(View itemView) {
+            super(itemView);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Selected Chip of a ChipView
+ * Kept as a bitset of positions, shifted with the adapter changes,
+ * or as a set of Chip keys when the adapter has stable ids
+ */
+final class ChipSelection {
+    private ChipViewAdapter mAdapter;
+    private final BitSet mPositions = new BitSet();
+    private final HashSet<Object> mKeys = new HashSet<>();
+
+    /**
+     * @param adapter
+     * @return whether or not the selection changed
+     */
+    boolean setAdapter(ChipViewAdapter adapter) {
+        mAdapter = adapter;
+
+        return clear();
+    }
+
+    private boolean isKeyed() {
+        return (mAdapter != null && mAdapter.hasStableIds());
+    }
+
+    boolean isSelected(int position) {
+        if (!isKeyed())
+            return mPositions.get(position);
+
+        if (mKeys.isEmpty())
+            return false;
+
+        Chip chip = mAdapter.getChip(position);
+
+        return (chip != null && mKeys.contains(mAdapter.getChipKey(chip)));
+    }
+
+    /**
+     * @param position
+     * @param selected
+     * @return whether or not the selection changed
+     */
+    boolean setSelected(int position, boolean selected) {
+        if (!isKeyed()) {
+            if (mPositions.get(position) == selected)
+                return false;
+
+            mPositions.set(position, selected);
+
+            return true;
+        }
+
+        Chip chip = mAdapter.getChip(position);
+
+        if (chip == null)
+            return false;
+
+        Object key = mAdapter.getChipKey(chip);
+
+        return (selected ? mKeys.add(key) : mKeys.remove(key));
+    }
+
+    /**
+     * @return whether or not the selection changed
+     */
+    boolean clear() {
+        boolean changed = (!mPositions.isEmpty() || !mKeys.isEmpty());
+        mPositions.clear();
+        mKeys.clear();
+
+        return changed;
+    }
+
+    /**
+     * @return whether or not the selection changed
+     */
+    boolean selectAll() {
+        int count = (mAdapter != null ? mAdapter.count() : 0);
+        boolean changed = false;
+
+        if (!isKeyed()) {
+            changed = (mPositions.cardinality() != count || mPositions.length() > count);
+            mPositions.clear();
+            mPositions.set(0, count);
+
+            return changed;
+        }
+
+        for (int i = 0; i < count; i++)
+            changed |= setSelected(i, true);
+
+        return changed;
+    }
+
+    /**
+     * @return whether or not the selection changed
+     */
+    boolean invert() {
+        int count = (mAdapter != null ? mAdapter.count() : 0);
+
+        if (count == 0)
+            return false;
+
+        if (!isKeyed()) {
+            mPositions.flip(0, count);
+            mPositions.clear(count, Math.max(count, mPositions.length()));
+
+            return true;
+        }
+
+        for (int i = 0; i < count; i++)
+            setSelected(i, !isSelected(i));
+
+        return true;
+    }
+
+    int getCount() {
+        if (!isKeyed())
+            return mPositions.cardinality();
+
+        return mKeys.size();
+    }
+
+    int[] getPositions() {
+        int count = (mAdapter != null ? mAdapter.count() : 0);
+
+        if (!isKeyed()) {
+            int[] positions = new int[mPositions.get(0, count).cardinality()];
+            int index = 0;
+
+            for (int i = mPositions.nextSetBit(0); i >= 0 && i < count; i = mPositions.nextSetBit(i + 1))
+                positions[index++] = i;
+
+            return positions;
+        }
+
+        int[] positions = new int[mKeys.size()];
+        int index = 0;
+
+        for (int i = 0; i < count && index < positions.length; i++) {
+            if (isSelected(i))
+                positions[index++] = i;
+        }
+
+        return positions;
+    }
+
+    List<Chip> getChips() {
+        int[] positions = getPositions();
+        List<Chip> chips = new ArrayList<>(positions.length);
+
+        for (int position : positions)
+            chips.add(mAdapter.getChip(position));
+
+        return chips;
+    }
+
+    /**
+     * The whole list changed, positions don't mean anything anymore, keys of the removed Chip are dropped
+     *
+     * @return whether or not the selection changed
+     */
+    boolean onChanged() {
+        if (!isKeyed())
+            return clear();
+
+        return dropRemovedKeys();
+    }
+
+    void onChipRangeInserted(int positionStart, int itemCount) {
+        if (!isKeyed() && mPositions.length() > positionStart) {
+            BitSet tail = mPositions.get(positionStart, mPositions.length());
+            mPositions.clear(positionStart, mPositions.length());
+
+            for (int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1))
+                mPositions.set(positionStart + itemCount + i);
+        }
+    }
+
+    /**
+     * @return whether or not the selection changed
+     */
+    boolean onChipRangeRemoved(int positionStart, int itemCount) {
+        if (isKeyed())
+            return dropRemovedKeys();
+
+        if (mPositions.length() <= positionStart)
+            return false;
+
+        boolean changed = (mPositions.nextSetBit(positionStart) < positionStart + itemCount);
+        BitSet tail = mPositions.get(positionStart + itemCount, Math.max(positionStart + itemCount, mPositions.length()));
+        mPositions.clear(positionStart, mPositions.length());
+
+        for (int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1))
+            mPositions.set(positionStart + i);
+
+        return changed;
+    }
+
+    void onChipMoved(int fromPosition, int toPosition) {
+        if (isKeyed())
+            return;
+
+        boolean selected = mPositions.get(fromPosition);
+        onChipRangeRemoved(fromPosition, 1);
+        onChipRangeInserted(toPosition, 1);
+        mPositions.set(toPosition, selected);
+    }
+
+    /**
+     * Drop the keys of the Chip no longer in the adapter, so a Chip added later with the same key isn't selected
+     * Checked against the adapter key index, in O(selected Chip)
+     *
+     * @return whether or not the selection changed
+     */
+    private boolean dropRemovedKeys() {
+        boolean changed = false;
+
+        for (Iterator<Object> iterator = mKeys.iterator(); iterator.hasNext(); ) {
+            if (!mAdapter.containsKey(iterator.next())) {
+                iterator.remove();
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+}
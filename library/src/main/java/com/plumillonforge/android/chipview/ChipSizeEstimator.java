@@ -0,0 +1,132 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.text.Layout;
+import android.text.TextPaint;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Estimate Chip sizes from text metrics without binding a view per Chip
+ * One prototype view per layout type is measured with an empty text to know everything around the text
+ */
+class ChipSizeEstimator {
+    private ChipViewAdapter mAdapter;
+    private SparseArray<Prototype> mPrototypes;
+
+    ChipSizeEstimator(ChipViewAdapter adapter) {
+        mAdapter = adapter;
+        mPrototypes = new SparseArray<>();
+    }
+
+    /**
+     * Estimated Chip width, margins included
+     *
+     * @param parent
+     * @param position
+     * @return int
+     */
+    int estimateWidth(ViewGroup parent, int position) {
+        Chip chip = mAdapter.getChip(position);
+
+        return estimateWidth(parent, mAdapter.getViewType(position), (chip != null ? chip.getText() : null));
+    }
+
+    /**
+     * Estimated width of a view of this type showing this text, margins included
+     *
+     * @param parent
+     * @param viewType
+     * @param text
+     * @return int
+     */
+    int estimateWidth(ViewGroup parent, int viewType, CharSequence text) {
+        Prototype prototype = getPrototype(parent, viewType);
+
+        if (prototype.paint == null || text == null)
+            return prototype.width;
+
+        float textWidth = mAdapter.getPrecomputedTextWidth(viewType, text);
+
+        if (textWidth < 0)
+            textWidth = Layout.getDesiredWidth(text, prototype.paint);
+
+        return prototype.width + (int) Math.ceil(textWidth);
+    }
+
+    /**
+     * Estimated Chip height, margins included
+     *
+     * @param parent
+     * @param position
+     * @return int
+     */
+    int estimateHeight(ViewGroup parent, int position) {
+        return estimateTypeHeight(parent, mAdapter.getViewType(position));
+    }
+
+    /**
+     * Estimated height of a view of this type, margins included
+     *
+     * @param parent
+     * @param viewType
+     * @return int
+     */
+    int estimateTypeHeight(ViewGroup parent, int viewType) {
+        return getPrototype(parent, viewType).height;
+    }
+
+    /**
+     * Forget every prototype, to call when the adapter style changed
+     */
+    void invalidate() {
+        mPrototypes.clear();
+    }
+
+    private Prototype getPrototype(ViewGroup parent, int viewType) {
+        Prototype prototype = mPrototypes.get(viewType);
+
+        if (prototype == null) {
+            View view = mAdapter.createView(parent, viewType);
+            ChipViewHolder holder = ChipViewHolder.from(view);
+            mAdapter.bindStyle(view, holder);
+
+            if (holder.text != null)
+                holder.text.setText("");
+
+            int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+            view.measure(unspecified, unspecified);
+            ViewGroup.MarginLayoutParams layoutParams = (ViewGroup.MarginLayoutParams) view.getLayoutParams();
+
+            prototype = new Prototype();
+            prototype.width = view.getMeasuredWidth() + layoutParams.leftMargin + layoutParams.rightMargin;
+            prototype.height = view.getMeasuredHeight() + layoutParams.topMargin + layoutParams.bottomMargin;
+            prototype.paint = (holder.text != null ? new TextPaint(holder.text.getPaint()) : null);
+            mPrototypes.put(viewType, prototype);
+        }
+
+        return prototype;
+    }
+
+    private static class Prototype {
+        int width;
+        int height;
+        TextPaint paint;
+    }
+}
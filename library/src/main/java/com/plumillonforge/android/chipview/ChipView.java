@@ -16,30 +16,186 @@
 
 package com.plumillonforge.android.chipview;
 
+import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Bundle;
 import android.support.annotation.ColorInt;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.LayoutRes;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
+import android.util.SparseArray;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.view.accessibility.AccessibilityEvent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Observable;
-import java.util.Observer;
 
 /**
  * Created by Plumillon Forge on 17/09/15.
  */
-public class ChipView extends ViewGroup implements Observer {
+public class ChipView extends ViewGroup {
+    private static final int DEFAULT_PREFETCH_MARGIN_DP = 200;
+    // Past this many changes in a frame, a full refresh is cheaper
+    private static final int MAX_PENDING_CHANGES = 64;
+    // Size of a Chip to estimate again in virtualized mode
+    private static final int UNKNOWN_SIZE = Integer.MIN_VALUE;
+
+    // Choice modes
+    public static final int CHOICE_MODE_NONE = 0;
+    public static final int CHOICE_MODE_SINGLE = 1;
+    public static final int CHOICE_MODE_MULTIPLE = 2;
+
     private ChipViewAdapter mAdapter;
+    private ChipViewPool mViewPool;
     private OnChipClickListener mListener;
+    private final View.OnClickListener mChipClickListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            ChipViewHolder holder = ChipViewHolder.from(v);
+            Chip chip = (holder != null ? holder.chip : mAdapter.getChip(indexOfChild(v)));
+
+            if (mChoiceMode != CHOICE_MODE_NONE) {
+                // Positions must match the adapter ones
+                flush();
+                int position = getChipPosition(v);
+
+                if (position >= 0)
+                    onChipClickSelection(position);
+            }
+
+            if (mListener != null && chip != null)
+                mListener.onChipClick(chip);
+        }
+    };
+
+    // Selection
+    private final ChipSelection mSelection = new ChipSelection();
+    private int mChoiceMode = CHOICE_MODE_NONE;
+    private OnChipSelectionChangedListener mSelectionListener;
 
     // Data
-    private List<Integer> mLineHeightList;
+    private FlowLayoutEngine mLayoutEngine;
+    private int[] mChildWidths;
+    private int[] mChildHeights;
+    private int mSkippedMeasureCount;
+    private boolean mPendingRefresh;
+    private int mDeferredStyleChanges;
+
+    // Frame coalescing
+    // Each change takes 4 ints: type, positionStart, itemCount, toPosition
+    private int[] mPendingChanges;
+    private Object[] mPendingPayloads;
+    private int mPendingChangeCount;
+    private boolean mPendingFullRefresh;
+    private int mPendingFullRefreshCause;
+    private boolean mFlushScheduled;
+    private Object mFrameCallback;
+    private ArrayList<View> mSlots;
+    private ArrayList<View> mRemovedViews;
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mFlushScheduled = false;
+            flush();
+        }
+    };
+
+    private final ChipViewAdapter.Observer mAdapterObserver = new ChipViewAdapter.Observer() {
+        @Override
+        public void onChanged() {
+            if (mSelection.onChanged())
+                dispatchSelectionChanged();
+
+            queueChange(ChipViewAdapter.Change.FULL, 0, 0, 0, null);
+        }
+
+        @Override
+        public void onChipRangeInserted(int positionStart, int itemCount) {
+            mSelection.onChipRangeInserted(positionStart, itemCount);
+            queueChange(ChipViewAdapter.Change.INSERTED, positionStart, itemCount, 0, null);
+        }
+
+        @Override
+        public void onChipRangeRemoved(int positionStart, int itemCount) {
+            if (mSelection.onChipRangeRemoved(positionStart, itemCount))
+                dispatchSelectionChanged();
+
+            queueChange(ChipViewAdapter.Change.REMOVED, positionStart, itemCount, 0, null);
+        }
+
+        @Override
+        public void onChipRangeChanged(int positionStart, int itemCount, Object payload) {
+            queueChange(ChipViewAdapter.Change.CHANGED, positionStart, itemCount, 0, payload);
+        }
+
+        @Override
+        public void onChipMoved(int fromPosition, int toPosition) {
+            mSelection.onChipMoved(fromPosition, toPosition);
+            queueChange(ChipViewAdapter.Change.MOVED, fromPosition, 1, toPosition, null);
+        }
+
+        @Override
+        public void onStyleChanged(int changes) {
+            applyStyleChanges(changes);
+        }
+
+        @Override
+        boolean usesTextWidths() {
+            return (isEstimating() || mDrawMode);
+        }
+    };
+
+    // Metrics
+    private ChipViewMetrics mMetrics = ChipViewMetrics.NONE;
+    private final ChipViewMetrics.Counts mMetricsCounts = new ChipViewMetrics.Counts();
+    private int mInflatedCountAtStart;
+    private int mDrawableCountAtStart;
+
+    // Draw mode
+    private boolean mDrawMode;
+    private ChipCanvasRenderer mCanvasRenderer;
+    private int mPressedPosition = -1;
+    private DrawnChipAccessibilityHelper mAccessibilityHelper;
+
+    // Line limit
+    private int mMaxLines;
+    private View mOverflowView;
+    private int mOverflowBoundCount;
+    private View.OnClickListener mOverflowClickListener;
+
+    // Virtualization
+    private boolean mVirtualized;
+    private int mPrefetchMargin;
+    private ChipSizeEstimator mSizeEstimator;
+    private SparseArray<View> mVirtualChildren;
+    private int mFirstBoundLine = -1;
+    private int mLastBoundLine = -1;
+    private boolean mCorrectingLines;
+    // Sizes kept between measures, only the changed Chip are estimated again
+    private boolean mEstimatesValid;
+    private int mEstimatedCount;
+    private final Rect mVisibleRect = new Rect();
+    private final ViewTreeObserver.OnScrollChangedListener mScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            if (isEstimating() && !mDrawMode && !isLayoutRequested())
+                bindVisibleLines(false);
+        }
+    };
 
     public ChipView(Context context) {
         super(context);
@@ -57,7 +213,16 @@ public class ChipView extends ViewGroup implements Observer {
     }
 
     private void init(Context context, AttributeSet attrs) {
-        mLineHeightList = new ArrayList<>();
+        mLayoutEngine = new FlowLayoutEngine();
+        mChildWidths = new int[0];
+        mChildHeights = new int[0];
+        mViewPool = new ChipViewPool();
+        mVirtualChildren = new SparseArray<>();
+        mPendingChanges = new int[4 * MAX_PENDING_CHANGES];
+        mPendingPayloads = new Object[MAX_PENDING_CHANGES];
+        mSlots = new ArrayList<>();
+        mRemovedViews = new ArrayList<>();
+        mPrefetchMargin = (int) dpToPx(DEFAULT_PREFETCH_MARGIN_DP);
         setAdapter(new ChipViewAdapter(context, attrs) {
             @Override
             public int getLayoutRes(int position) {
@@ -86,234 +251,1707 @@ public class ChipView extends ViewGroup implements Observer {
         });
     }
 
-    @Override
-    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        measureChildren(widthMeasureSpec, heightMeasureSpec);
-
-        mLineHeightList.clear();
-        int width = getMeasuredWidth();
-        int height = getPaddingTop() + getPaddingBottom();
-        int lineHeight = 0;
-        int lineWidth = getPaddingLeft();
-        int childCount = getChildCount();
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        // Changes made while not shown, a scrapped list row may be attached again without any callback
+        if (hasDeferredChanges())
+            flush();
+
+        long startTime = beginPass(ChipViewMetrics.PASS_MEASURE);
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        measureChips(widthMeasureSpec, heightMeasureSpec);
+        endPass(ChipViewMetrics.PASS_MEASURE, startTime);
+    }
+
+    private void measureChips(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mDrawMode) {
+            measureDrawn();
+            return;
+        }
+
+        if (isEstimating()) {
+            measureVirtualized();
+            return;
+        }
+
+        measureChipViews(widthMeasureSpec, heightMeasureSpec);
+
+        int childCount = getChildCount();
+        ensureLayoutCapacity(childCount);
+
+        for (int i = 0; i < childCount; i++) {
+            View childView = getChildAt(i);
+
+            if (childView.getVisibility() == GONE) {
+                mChildWidths[i] = -1;
+                continue;
+            }
+
+            MarginLayoutParams layoutParams = (MarginLayoutParams) childView.getLayoutParams();
+            mChildWidths[i] = (childView.getMeasuredWidth() + layoutParams.leftMargin + layoutParams.rightMargin);
+            mChildHeights[i] = (childView.getMeasuredHeight() + layoutParams.topMargin + layoutParams.bottomMargin);
+        }
+
+        int height = computeLines(childCount, getMeasuredWidth());
+        setMeasuredDimension(Math.max(getMeasuredWidth(), mLayoutEngine.getContentWidth()), height);
+    }
+
+    /**
+     * Measure every Chip drawn on the canvas, there is no child at all in draw mode
+     */
+    private void measureDrawn() {
+        int count = (mAdapter != null ? mAdapter.count() : 0);
+        ensureLayoutCapacity(count);
+        mCanvasRenderer.measure(count, mChildWidths, mChildHeights);
+
+        int height = computeLines(count, getMeasuredWidth());
+        setMeasuredDimension(Math.max(getMeasuredWidth(), mLayoutEngine.getContentWidth()), height);
+
+        if (mAccessibilityHelper != null)
+            mAccessibilityHelper.invalidateRoot();
+    }
+
+    /**
+     * Size every Chip from text metrics, only the Chip already bound are measured for real
+     */
+    private void measureVirtualized() {
+        int count = (mAdapter != null ? mAdapter.count() : 0);
+        ensureLayoutCapacity(count);
+
+        boolean estimateAll = (!mEstimatesValid || mEstimatedCount != count);
+
+        for (int i = 0; i < count; i++) {
+            if (estimateAll || mChildWidths[i] == UNKNOWN_SIZE) {
+                mChildWidths[i] = mSizeEstimator.estimateWidth(this, i);
+                mChildHeights[i] = mSizeEstimator.estimateHeight(this, i);
+            }
+        }
+
+        mEstimatesValid = true;
+        mEstimatedCount = count;
+
+        for (int i = 0; i < mVirtualChildren.size(); i++) {
+            int position = mVirtualChildren.keyAt(i);
+            View view = mVirtualChildren.valueAt(i);
+
+            if (position >= count)
+                continue;
+
+            if (view.isLayoutRequested())
+                measureVirtualChild(view, position);
+            else
+                storeVirtualChildSize(view, position);
+        }
+
+        int height = computeLines(count, getMeasuredWidth());
+        setMeasuredDimension(Math.max(getMeasuredWidth(), mLayoutEngine.getContentWidth()), height);
+    }
+
+    /**
+     * Break mChildWidths / mChildHeights into lines and compute each Chip margin box position
+     * Line breaks and positions are computed once here, onLayout only applies them
+     *
+     * @param count
+     * @param availableWidth
+     * @return int the total height, padding included
+     */
+    private int computeLines(int count, int availableWidth) {
+        if (mMaxLines > 0 && mAdapter != null) {
+            // Room for the widest overflow Chip, hiding every Chip
+            CharSequence overflowText = mAdapter.getOverflowText(count);
+
+            if (mDrawMode)
+                mLayoutEngine.setMaxLines(mMaxLines, mCanvasRenderer.measureWidth(overflowText), mCanvasRenderer.measureHeight());
+            else {
+                int viewType = mAdapter.getChipLayoutRes();
+                mLayoutEngine.setMaxLines(mMaxLines, mSizeEstimator.estimateWidth(this, viewType, overflowText), mSizeEstimator.estimateTypeHeight(this, viewType));
+            }
+        } else
+            mLayoutEngine.setMaxLines(0, 0, 0);
+
+        int height = mLayoutEngine.compute(mChildWidths, mChildHeights, count, availableWidth, getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
+        mMetricsCounts.linesComputed += mLayoutEngine.getLineCount();
+
+        return height;
+    }
+
+    private void ensureLayoutCapacity(int count) {
+        if (mChildWidths.length < count) {
+            int capacity = Math.max(count, mChildWidths.length * 2);
+            mChildWidths = Arrays.copyOf(mChildWidths, capacity);
+            mChildHeights = Arrays.copyOf(mChildHeights, capacity);
+        }
+    }
+
+    /**
+     * Measure only the children whose Chip, layout or parent specs changed since their last measure
+     *
+     * @param widthMeasureSpec
+     * @param heightMeasureSpec
+     */
+    private void measureChipViews(int widthMeasureSpec, int heightMeasureSpec) {
+        int childCount = getChildCount();
+
+        for (int i = 0; i < childCount; i++) {
+            View childView = getChildAt(i);
+
+            if (childView.getVisibility() == GONE)
+                continue;
+
+            ChipViewHolder holder = ChipViewHolder.from(childView);
+
+            if (holder != null && !childView.isLayoutRequested() && holder.isMeasureValid(widthMeasureSpec, heightMeasureSpec)) {
+                mSkippedMeasureCount++;
+                continue;
+            }
+
+            measureChild(childView, widthMeasureSpec, heightMeasureSpec);
+            mMetricsCounts.viewsMeasured++;
+
+            if (holder != null)
+                holder.onMeasured(widthMeasureSpec, heightMeasureSpec);
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        long startTime = beginPass(ChipViewMetrics.PASS_LAYOUT);
+
+        if (isEstimating() && !mDrawMode) {
+            bindVisibleLines(true);
+            layoutOverflowView();
+        }
+        else if (!mDrawMode && mAdapter != null) {
+            int childCount = Math.min(getChildCount(), mLayoutEngine.getCount());
+
+            for (int i = 0; i < childCount; i++) {
+                View childView = getChildAt(i);
+
+                if (childView.getVisibility() == View.GONE)
+                    continue;
+
+                layoutChild(childView, i);
+            }
+        }
+
+        endPass(ChipViewMetrics.PASS_LAYOUT, startTime);
+    }
+
+    private void layoutChild(View childView, int index) {
+        MarginLayoutParams layoutParams = (MarginLayoutParams) childView.getLayoutParams();
+        int left = mLayoutEngine.getLeft(index) + layoutParams.leftMargin;
+        int top = mLayoutEngine.getTop(index) + layoutParams.topMargin;
+
+        childView.layout(left, top, (left + childView.getMeasuredWidth()), (top + childView.getMeasuredHeight()));
+    }
+
+    /**
+     * Bind the Chip of the lines inside the visible rect (plus the prefetch margin) and recycle the others
+     *
+     * @param inLayout whether or not we are in a layout pass, already bound Chip are laid out again
+     */
+    private void bindVisibleLines(boolean inLayout) {
+        int firstLine = 0;
+        int lastLine = -1;
+
+        FlowLayoutEngine engine = mLayoutEngine;
+
+        if (mAdapter != null && engine.getLineCount() > 0 && getLocalVisibleRect(mVisibleRect)) {
+            int top = mVisibleRect.top - mPrefetchMargin;
+            int bottom = mVisibleRect.bottom + mPrefetchMargin;
+            lastLine = engine.getLineCount() - 1;
+
+            while (firstLine < lastLine && engine.getLineTop(firstLine) + engine.getLineHeight(firstLine) <= top)
+                firstLine++;
+
+            while (lastLine > firstLine && engine.getLineTop(lastLine) >= bottom)
+                lastLine--;
+        }
+
+        if (!inLayout && firstLine == mFirstBoundLine && lastLine == mLastBoundLine)
+            return;
+
+        long startTime = (inLayout ? 0 : beginPass(ChipViewMetrics.PASS_SCROLL));
+
+        mFirstBoundLine = firstLine;
+        mLastBoundLine = lastLine;
+        int firstPosition = (lastLine >= 0 ? engine.getLineStart(firstLine) : 0);
+        int lastPosition = (lastLine >= 0 ? engine.getLineEnd(lastLine) - 1 : -1);
+
+        for (int i = mVirtualChildren.size() - 1; i >= 0; i--) {
+            int position = mVirtualChildren.keyAt(i);
+
+            if (position < firstPosition || position > lastPosition) {
+                View view = mVirtualChildren.valueAt(i);
+                mVirtualChildren.removeAt(i);
+                removeViewInLayout(view);
+                recycleChipView(view);
+            }
+        }
+
+        boolean sizeChanged = false;
+
+        for (int position = firstPosition; position <= lastPosition; position++) {
+            View view = mVirtualChildren.get(position);
+
+            if (view == null) {
+                view = createChipView(position);
+
+                if (view == null)
+                    continue;
+
+                addViewInLayout(view, -1, view.getLayoutParams(), true);
+                mVirtualChildren.put(position, view);
+                sizeChanged |= measureVirtualChild(view, position);
+                layoutChild(view, position);
+            } else if (inLayout)
+                layoutChild(view, position);
+        }
+
+        // The bound Chip don't match their estimate, lines are broken again with their real size
+        if (sizeChanged && !mCorrectingLines) {
+            int height = mLayoutEngine.getHeight();
+            computeLines(mAdapter.count(), getMeasuredWidth());
+
+            if (mLayoutEngine.getHeight() != height)
+                requestLayout();
+
+            mCorrectingLines = true;
+            bindVisibleLines(true);
+            mCorrectingLines = false;
+
+            if (!inLayout && mMaxLines > 0)
+                layoutOverflowView();
+        }
+
+        if (!inLayout) {
+            invalidate();
+            endPass(ChipViewMetrics.PASS_SCROLL, startTime);
+        }
+    }
+
+    /**
+     * Measure a bound Chip for real, the estimate only sizes the Chip without a view
+     *
+     * @param view
+     * @param position
+     * @return whether or not its size differs from the one used to break the lines
+     */
+    private boolean measureVirtualChild(View view, int position) {
+        MarginLayoutParams layoutParams = (MarginLayoutParams) view.getLayoutParams();
+        int availableWidth = getMeasuredWidth() - getPaddingLeft() - getPaddingRight() - layoutParams.leftMargin - layoutParams.rightMargin;
+        mMetricsCounts.viewsMeasured++;
+        view.measure(MeasureSpec.makeMeasureSpec(Math.max(0, availableWidth), MeasureSpec.AT_MOST),
+                MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+
+        return storeVirtualChildSize(view, position);
+    }
+
+    private boolean storeVirtualChildSize(View view, int position) {
+        MarginLayoutParams layoutParams = (MarginLayoutParams) view.getLayoutParams();
+        int width = view.getMeasuredWidth() + layoutParams.leftMargin + layoutParams.rightMargin;
+        int height = view.getMeasuredHeight() + layoutParams.topMargin + layoutParams.bottomMargin;
+        boolean changed = (width != mChildWidths[position] || height != mChildHeights[position]);
+        mChildWidths[position] = width;
+        mChildHeights[position] = height;
+
+        return changed;
+    }
+
+    /**
+     * Bind and place the overflow Chip standing for the Chip hidden by the line limit, removed when nothing is hidden
+     */
+    private void layoutOverflowView() {
+        int hiddenCount = mLayoutEngine.getOverflowCount();
+
+        if (hiddenCount == 0 || mAdapter == null) {
+            if (mOverflowView != null && mOverflowView.getParent() == this)
+                removeViewInLayout(mOverflowView);
+
+            return;
+        }
+
+        if (mOverflowView == null) {
+            mOverflowView = mAdapter.createOverflowView(this);
+            mOverflowView.setOnClickListener(mOverflowClickListener);
+            mOverflowView.setClickable(mOverflowClickListener != null);
+            mOverflowBoundCount = 0;
+            mMetricsCounts.viewsCreated++;
+        }
+
+        if (mOverflowView.getParent() == null)
+            addViewInLayout(mOverflowView, -1, mOverflowView.getLayoutParams(), true);
+
+        if (mOverflowBoundCount != hiddenCount) {
+            mAdapter.bindOverflowView(mOverflowView, hiddenCount);
+            mOverflowBoundCount = hiddenCount;
+        }
+
+        MarginLayoutParams layoutParams = (MarginLayoutParams) mOverflowView.getLayoutParams();
+
+        if (mOverflowView.isLayoutRequested()) {
+            int availableWidth = getMeasuredWidth() - getPaddingLeft() - getPaddingRight() - layoutParams.leftMargin - layoutParams.rightMargin;
+            mMetricsCounts.viewsMeasured++;
+            mOverflowView.measure(MeasureSpec.makeMeasureSpec(Math.max(0, availableWidth), MeasureSpec.AT_MOST),
+                    MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+        }
+
+        int left = mLayoutEngine.getOverflowLeft() + layoutParams.leftMargin;
+        int top = mLayoutEngine.getOverflowTop() + layoutParams.topMargin;
+        mOverflowView.layout(left, top, left + mOverflowView.getMeasuredWidth(), top + mOverflowView.getMeasuredHeight());
+    }
+
+    private void dropOverflowView() {
+        if (mOverflowView != null && mOverflowView.getParent() == this)
+            removeViewInLayout(mOverflowView);
+
+        mOverflowView = null;
+    }
+
+    /**
+     * Drop every bound Chip, the next layout pass estimates and binds them again
+     */
+    private void invalidateVirtualized() {
+        mEstimatesValid = false;
+        removeAllViewsInLayout();
+
+        for (int i = 0; i < mVirtualChildren.size(); i++)
+            recycleChipView(mVirtualChildren.valueAt(i));
+
+        mVirtualChildren.clear();
+        mFirstBoundLine = -1;
+        mLastBoundLine = -1;
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        if (mDrawMode)
+            mCanvasRenderer.draw(canvas, mLayoutEngine, mChildWidths, mChildHeights, mPressedPosition, mSelection);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!mDrawMode || !isChipClickable())
+            return super.onTouchEvent(event);
+
+        int position = mCanvasRenderer.findChipAt(event.getX(), event.getY(), mLayoutEngine, mChildWidths, mChildHeights);
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                setPressedPosition(position);
+
+                return (position >= 0);
+
+            case MotionEvent.ACTION_MOVE:
+                if (position != mPressedPosition)
+                    setPressedPosition(-1);
+                break;
+
+            case MotionEvent.ACTION_UP:
+                Chip chip = (mPressedPosition >= 0 && position == mPressedPosition ? mAdapter.getChip(position) : null);
+                setPressedPosition(-1);
+
+                if (chip != null) {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    performDrawnChipClick(position);
+                }
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                setPressedPosition(-1);
+                break;
+        }
+
+        return true;
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (mDrawMode && mAccessibilityHelper != null && mAccessibilityHelper.dispatchHoverEvent(event))
+            return true;
+
+        return super.dispatchHoverEvent(event);
+    }
+
+    /**
+     * Click a drawn Chip, from a touch or an accessibility service
+     *
+     * @param position
+     * @return boolean false if there is no Chip at this position
+     */
+    private boolean performDrawnChipClick(int position) {
+        Chip chip = mAdapter.getChip(position);
+
+        if (chip == null)
+            return false;
+
+        if (mChoiceMode != CHOICE_MODE_NONE)
+            onChipClickSelection(position);
+
+        if (mListener != null)
+            mListener.onChipClick(chip);
+
+        if (mAccessibilityHelper != null)
+            mAccessibilityHelper.sendEventForVirtualView(position, AccessibilityEvent.TYPE_VIEW_CLICKED);
+
+        return true;
+    }
+
+    private void setPressedPosition(int pressedPosition) {
+        if (mPressedPosition != pressedPosition) {
+            mPressedPosition = pressedPosition;
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(mScrollChangedListener);
+
+        if (hasDeferredChanges() && isShown())
+            flush();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+
+        if (hasDeferredChanges() && isShown())
+            flush();
+    }
+
+    @Override
+    public void onFinishTemporaryDetach() {
+        super.onFinishTemporaryDetach();
+
+        if (hasDeferredChanges() && isShown())
+            flush();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnScrollChangedListener(mScrollChangedListener);
+
+        // Frames stop while detached, the changes stay queued until the next attach or measure
+        cancelFlush();
+
+        super.onDetachedFromWindow();
+    }
+
+    private boolean hasDeferredChanges() {
+        return (mPendingRefresh || mDeferredStyleChanges != 0 || mPendingFullRefresh || mPendingChangeCount > 0);
+    }
+
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new MarginLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(LayoutParams p) {
+        return new MarginLayoutParams(p);
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new MarginLayoutParams(getContext(), attrs);
+    }
+
+    public void refresh() {
+        refresh(ChipViewMetrics.CAUSE_REQUESTED);
+    }
+
+    private void refresh(int cause) {
+        mMetrics.onRebuild(this, cause);
+        long startTime = beginPass(ChipViewMetrics.PASS_REFRESH);
+        mPendingRefresh = false;
+        mDeferredStyleChanges = 0;
+        mPendingFullRefresh = false;
+        clearPendingChanges();
+        cancelFlush();
+
+        if (mDrawMode) {
+            mCanvasRenderer.invalidate();
+            mPressedPosition = -1;
+            requestLayout();
+            invalidate();
+        } else if (isEstimating()) {
+            mSizeEstimator.invalidate();
+            invalidateVirtualized();
+        } else if (mAdapter != null) {
+            rebindChipViews();
+            requestLayout();
+            invalidate();
+        }
+
+        endPass(ChipViewMetrics.PASS_REFRESH, startTime);
+    }
+
+    /**
+     * Bind every Chip again, reusing the current children by position then by type
+     * Only the views left over go back to the pool
+     */
+    private void rebindChipViews() {
+        ArrayList<View> oldViews = mSlots;
+        ArrayList<View> views = mRemovedViews;
+        int count = mAdapter.count();
+
+        for (int i = 0; i < getChildCount(); i++)
+            oldViews.add(getChildAt(i));
+
+        detachAllViewsFromParent();
+
+        // Same position and same type first, keeps the measure of unchanged Chip
+        for (int i = 0; i < count; i++) {
+            View view = (i < oldViews.size() ? oldViews.get(i) : null);
+            ChipViewHolder holder = (view != null ? ChipViewHolder.from(view) : null);
+
+            if (holder != null && mAdapter.getChip(i) != null && holder.viewType == mAdapter.getViewType(i)) {
+                oldViews.set(i, null);
+                views.add(view);
+            } else
+                views.add(null);
+        }
+
+        SparseArray<ArrayList<View>> scrap = new SparseArray<>();
+
+        for (int i = 0; i < oldViews.size(); i++) {
+            View view = oldViews.get(i);
+            ChipViewHolder holder = (view != null ? ChipViewHolder.from(view) : null);
+
+            if (holder == null)
+                continue;
+
+            ArrayList<View> typeScrap = scrap.get(holder.viewType);
+
+            if (typeScrap == null) {
+                typeScrap = new ArrayList<>();
+                scrap.put(holder.viewType, typeScrap);
+            }
+
+            typeScrap.add(view);
+        }
+
+        for (int i = 0; i < count; i++) {
+            View view = views.get(i);
+
+            if (view == null && mAdapter.getChip(i) != null) {
+                ArrayList<View> typeScrap = scrap.get(mAdapter.getViewType(i));
+
+                if (typeScrap != null && !typeScrap.isEmpty())
+                    view = typeScrap.remove(typeScrap.size() - 1);
+            }
+
+            if (view != null) {
+                ChipViewHolder.from(view).clearPayloads();
+                bindChipView(view, i);
+                mMetricsCounts.viewsReused++;
+                attachViewToParent(view, -1, view.getLayoutParams());
+            } else {
+                view = createChipView(i);
+
+                if (view != null)
+                    addViewInLayout(view, -1, view.getLayoutParams(), true);
+            }
+        }
+
+        for (int i = 0; i < scrap.size(); i++) {
+            ArrayList<View> typeScrap = scrap.valueAt(i);
+
+            for (int j = 0; j < typeScrap.size(); j++) {
+                removeDetachedView(typeScrap.get(j), false);
+                recycleChipView(typeScrap.get(j));
+            }
+        }
+
+        oldViews.clear();
+        views.clear();
+    }
+
+    private View createChipView(int position) {
+        if (mAdapter.getChip(position) == null)
+            return null;
+
+        int viewType = mAdapter.getViewType(position);
+        View view = mViewPool.get(viewType);
+
+        if (view == null) {
+            view = mAdapter.createView(this, viewType);
+            mMetricsCounts.viewsCreated++;
+        } else
+            mMetricsCounts.viewsReused++;
+
+        bindChipView(view, position);
+
+        return view;
+    }
+
+    private void bindChipView(View view, int position) {
+        mAdapter.bindView(view, position);
+        view.setSelected(mSelection.isSelected(position));
+        // Pooled views may come from a ChipView with another click state
+        setChipClickable(view, isChipClickable());
+    }
+
+    private boolean isChipClickable() {
+        return (mListener != null || mChoiceMode != CHOICE_MODE_NONE);
+    }
+
+    private void updateChipClickable(boolean clickable) {
+        for (int i = 0; i < getChildCount(); i++) {
+            View view = getChildAt(i);
+
+            if (view != mOverflowView)
+                setChipClickable(view, clickable);
+        }
+    }
+
+    private void setChipClickable(View view, boolean clickable) {
+        view.setOnClickListener(clickable ? mChipClickListener : null);
+        view.setClickable(clickable);
+        view.setFocusable(clickable);
+    }
+
+    /**
+     * Remove count children starting at start and give them back to the pool
+     * Layout is not requested, callers do it once they are done
+     *
+     * @param start
+     * @param count
+     */
+    private void recycleChipViews(int start, int count) {
+        for (int i = start + count - 1; i >= start; i--) {
+            View view = getChildAt(i);
+            removeViewInLayout(view);
+            recycleChipView(view);
+        }
+    }
+
+    private void recycleChipView(View view) {
+        ChipViewHolder holder = ChipViewHolder.from(view);
+
+        if (holder != null) {
+            holder.clearPayloads();
+            mViewPool.put(holder.viewType, view);
+        }
+    }
+
+    /**
+     * Replay the pending changes on the current children, then bind every slot which doesn't
+     * show the adapter Chip at its position anymore, each child is bound at most once per frame
+     *
+     * @return boolean false if the changes don't fit the children and a full refresh is needed
+     */
+    private boolean applyPendingChanges() {
+        ArrayList<View> slots = mSlots;
+        ArrayList<View> removedViews = mRemovedViews;
+        slots.clear();
+        removedViews.clear();
+
+        for (int i = 0; i < getChildCount(); i++)
+            slots.add(getChildAt(i));
+
+        for (int c = 0; c < mPendingChangeCount; c++) {
+            int type = mPendingChanges[4 * c];
+            int positionStart = mPendingChanges[4 * c + 1];
+            int itemCount = mPendingChanges[4 * c + 2];
+            int toPosition = mPendingChanges[4 * c + 3];
+            int end = positionStart + itemCount;
+
+            if (positionStart < 0 || itemCount < 0)
+                return false;
+
+            switch (type) {
+                case ChipViewAdapter.Change.INSERTED:
+                    if (positionStart > slots.size())
+                        return false;
+
+                    for (int i = positionStart; i < end; i++)
+                        slots.add(i, null);
+                    break;
+
+                case ChipViewAdapter.Change.REMOVED:
+                    if (end > slots.size())
+                        return false;
+
+                    for (int i = positionStart; i < end; i++) {
+                        View view = slots.remove(positionStart);
+
+                        if (view != null)
+                            removedViews.add(view);
+                    }
+                    break;
+
+                case ChipViewAdapter.Change.CHANGED:
+                    if (end > slots.size())
+                        return false;
+
+                    for (int i = positionStart; i < end; i++) {
+                        ChipViewHolder holder = (slots.get(i) != null ? ChipViewHolder.from(slots.get(i)) : null);
+
+                        if (holder != null)
+                            holder.addPayload(mPendingPayloads[c]);
+                    }
+                    break;
+
+                case ChipViewAdapter.Change.MOVED:
+                    if (positionStart >= slots.size() || toPosition < 0 || toPosition >= slots.size())
+                        return false;
+
+                    slots.add(toPosition, slots.remove(positionStart));
+                    break;
+            }
+        }
+
+        if (slots.size() != mAdapter.count())
+            return false;
+
+        detachAllViewsFromParent();
+
+        for (int i = 0; i < removedViews.size(); i++) {
+            removeDetachedView(removedViews.get(i), false);
+            recycleChipView(removedViews.get(i));
+        }
+
+        for (int i = 0; i < slots.size(); i++) {
+            View view = slots.get(i);
+            ChipViewHolder holder = (view != null ? ChipViewHolder.from(view) : null);
+
+            if (holder != null && (holder.needsBind || holder.chip != mAdapter.getChip(i))) {
+                // Same layout, bind in place, otherwise the view goes back to the pool
+                if (holder.viewType == mAdapter.getViewType(i)) {
+                    // A payload applies to the Chip it was sent for, or to the one a diff replaced it with,
+                    // another new Chip needs a full bind
+                    if (holder.chip == mAdapter.getChip(i) || !holder.getPayloads().isEmpty())
+                        mAdapter.bindView(view, i, holder.getPayloads());
+                    else
+                        mAdapter.bindView(view, i);
+
+                    holder.clearPayloads();
+                } else {
+                    removeDetachedView(view, false);
+                    recycleChipView(view);
+                    view = null;
+                }
+            }
+
+            // Views are appended in position order, a null Chip gets no view like in a full rebuild
+            if (view != null) {
+                view.setSelected(mSelection.isSelected(i));
+                attachViewToParent(view, -1, view.getLayoutParams());
+            } else {
+                view = createChipView(i);
+
+                if (view != null)
+                    addViewInLayout(view, -1, view.getLayoutParams(), true);
+            }
+        }
+
+        slots.clear();
+        removedViews.clear();
+        requestLayout();
+        invalidate();
+
+        return true;
+    }
+
+    /**
+     * Apply the queued changes to the bound Chip and the kept sizes in virtualized or line limit mode
+     * Bound Chip follow their position, only the changed ones are bound and estimated again
+     *
+     * @return false if the changes don't match the Chip shown, everything has to be bound again
+     */
+    private boolean applyVirtualChanges() {
+        int count = mEstimatedCount;
+
+        for (int c = 0; c < mPendingChangeCount; c++) {
+            int type = mPendingChanges[4 * c];
+            int positionStart = mPendingChanges[4 * c + 1];
+            int itemCount = mPendingChanges[4 * c + 2];
+            int toPosition = mPendingChanges[4 * c + 3];
+            int end = positionStart + itemCount;
+
+            if (positionStart < 0 || itemCount < 0)
+                return false;
+
+            switch (type) {
+                case ChipViewAdapter.Change.INSERTED:
+                    if (positionStart > count)
+                        return false;
+
+                    shiftVirtualChildren(positionStart, itemCount);
+
+                    if (mEstimatesValid) {
+                        ensureLayoutCapacity(count + itemCount);
+                        System.arraycopy(mChildWidths, positionStart, mChildWidths, end, count - positionStart);
+                        System.arraycopy(mChildHeights, positionStart, mChildHeights, end, count - positionStart);
+                        Arrays.fill(mChildWidths, positionStart, end, UNKNOWN_SIZE);
+                    }
+
+                    count += itemCount;
+                    break;
+
+                case ChipViewAdapter.Change.REMOVED:
+                    if (end > count)
+                        return false;
+
+                    for (int i = mVirtualChildren.size() - 1; i >= 0; i--) {
+                        int position = mVirtualChildren.keyAt(i);
+
+                        if (position >= positionStart && position < end) {
+                            View view = mVirtualChildren.valueAt(i);
+                            mVirtualChildren.removeAt(i);
+                            removeViewInLayout(view);
+                            recycleChipView(view);
+                        }
+                    }
+
+                    shiftVirtualChildren(end, -itemCount);
+
+                    if (mEstimatesValid) {
+                        System.arraycopy(mChildWidths, end, mChildWidths, positionStart, count - end);
+                        System.arraycopy(mChildHeights, end, mChildHeights, positionStart, count - end);
+                    }
+
+                    count -= itemCount;
+                    break;
+
+                case ChipViewAdapter.Change.CHANGED:
+                    if (end > count)
+                        return false;
+
+                    for (int i = positionStart; i < end; i++) {
+                        View view = mVirtualChildren.get(i);
+
+                        if (view != null && ChipViewHolder.from(view) != null)
+                            ChipViewHolder.from(view).addPayload(mPendingPayloads[c]);
+                    }
+
+                    // A background change keeps the Chip size
+                    if (mEstimatesValid && mPendingPayloads[c] != ChipViewAdapter.PAYLOAD_BACKGROUND)
+                        Arrays.fill(mChildWidths, positionStart, end, UNKNOWN_SIZE);
+                    break;
+
+                case ChipViewAdapter.Change.MOVED:
+                    if (positionStart >= count || toPosition < 0 || toPosition >= count)
+                        return false;
+
+                    View moved = mVirtualChildren.get(positionStart);
+                    mVirtualChildren.remove(positionStart);
+                    shiftVirtualChildren(positionStart + 1, -1);
+                    shiftVirtualChildren(toPosition, 1);
+
+                    if (moved != null)
+                        mVirtualChildren.put(toPosition, moved);
+
+                    if (mEstimatesValid) {
+                        int width = mChildWidths[positionStart];
+                        int height = mChildHeights[positionStart];
+                        System.arraycopy(mChildWidths, positionStart + 1, mChildWidths, positionStart, count - positionStart - 1);
+                        System.arraycopy(mChildHeights, positionStart + 1, mChildHeights, positionStart, count - positionStart - 1);
+                        System.arraycopy(mChildWidths, toPosition, mChildWidths, toPosition + 1, count - toPosition - 1);
+                        System.arraycopy(mChildHeights, toPosition, mChildHeights, toPosition + 1, count - toPosition - 1);
+                        mChildWidths[toPosition] = width;
+                        mChildHeights[toPosition] = height;
+                    }
+                    break;
+            }
+        }
+
+        if (count != mAdapter.count())
+            return false;
+
+        mEstimatedCount = count;
+
+        // Bind again the Chip changed or replaced, a view of another type goes back to the pool
+        for (int i = mVirtualChildren.size() - 1; i >= 0; i--) {
+            int position = mVirtualChildren.keyAt(i);
+            View view = mVirtualChildren.valueAt(i);
+            ChipViewHolder holder = ChipViewHolder.from(view);
+            Chip chip = mAdapter.getChip(position);
+
+            if (holder == null || (!holder.needsBind && holder.chip == chip))
+                continue;
+
+            if (chip != null && holder.viewType == mAdapter.getViewType(position)) {
+                if (holder.chip == chip || !holder.getPayloads().isEmpty())
+                    mAdapter.bindView(view, position, holder.getPayloads());
+                else
+                    mAdapter.bindView(view, position);
+
+                holder.clearPayloads();
+                view.setSelected(mSelection.isSelected(position));
+            } else {
+                mVirtualChildren.removeAt(i);
+                removeViewInLayout(view);
+                recycleChipView(view);
+            }
+        }
+
+        mFirstBoundLine = -1;
+        mLastBoundLine = -1;
+        requestLayout();
+        invalidate();
+
+        return true;
+    }
+
+    /**
+     * Move the bound Chip from fromPosition on by offset positions
+     *
+     * @param fromPosition
+     * @param offset
+     */
+    private void shiftVirtualChildren(int fromPosition, int offset) {
+        SparseArray<View> shifted = new SparseArray<>(mVirtualChildren.size());
+
+        for (int i = 0; i < mVirtualChildren.size(); i++) {
+            int position = mVirtualChildren.keyAt(i);
+            shifted.append(position >= fromPosition ? position + offset : position, mVirtualChildren.valueAt(i));
+        }
+
+        mVirtualChildren = shifted;
+    }
+
+    private void scheduleFlush() {
+        if (mFlushScheduled)
+            return;
+
+        mFlushScheduled = true;
+
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.JELLY_BEAN) {
+            if (mFrameCallback == null) {
+                mFrameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        mFlushScheduled = false;
+                        flush();
+                    }
+                };
+            }
+
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+        } else
+            postDelayed(mFlushRunnable, ValueAnimator.getFrameDelay());
+    }
+
+    private void cancelFlush() {
+        if (!mFlushScheduled)
+            return;
+
+        mFlushScheduled = false;
+
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.JELLY_BEAN)
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+        else
+            removeCallbacks(mFlushRunnable);
+    }
+
+    /**
+     * Apply now the adapter changes waiting for the next frame or for the view to be shown, useful for tests
+     */
+    public void flush() {
+        cancelFlush();
+
+        if (mPendingRefresh) {
+            refresh(ChipViewMetrics.CAUSE_DEFERRED);
+            return;
+        }
+
+        // Applies the queued changes first
+        if (mDeferredStyleChanges != 0) {
+            applyStyleChangesNow(mDeferredStyleChanges);
+            return;
+        }
+
+        if (!mPendingFullRefresh && mPendingChangeCount == 0)
+            return;
+
+        boolean fullRefresh = mPendingFullRefresh;
+        int cause = (fullRefresh ? mPendingFullRefreshCause : getPendingChangesCause());
+        mPendingFullRefresh = false;
+
+        if (mDrawMode) {
+            mPressedPosition = -1;
+            requestLayout();
+            invalidate();
+        } else if (isEstimating()) {
+            long startTime = beginPass(ChipViewMetrics.PASS_UPDATE);
+            boolean applied = (!fullRefresh && mAdapter != null && applyVirtualChanges());
+            endPass(ChipViewMetrics.PASS_UPDATE, startTime);
+
+            if (!applied) {
+                mMetrics.onRebuild(this, cause);
+                invalidateVirtualized();
+            }
+        } else if (fullRefresh || mAdapter == null)
+            refresh(cause);
+        else {
+            long startTime = beginPass(ChipViewMetrics.PASS_UPDATE);
+            boolean applied = applyPendingChanges();
+            endPass(ChipViewMetrics.PASS_UPDATE, startTime);
+
+            if (!applied)
+                refresh(cause);
+        }
+
+        clearPendingChanges();
+    }
+
+    /**
+     * Return the rebuild cause of the queued changes, the kind of change when they're all the same
+     *
+     * @return int ChipViewMetrics.CAUSE_*
+     */
+    private int getPendingChangesCause() {
+        if (mPendingChangeCount == 0)
+            return ChipViewMetrics.CAUSE_DATA_SET_CHANGED;
+
+        int type = mPendingChanges[0];
+
+        for (int c = 1; c < mPendingChangeCount; c++) {
+            if (mPendingChanges[4 * c] != type)
+                return ChipViewMetrics.CAUSE_ADAPTER_CHANGES;
+        }
+
+        switch (type) {
+            case ChipViewAdapter.Change.INSERTED:
+                return ChipViewMetrics.CAUSE_INSERTED;
+
+            case ChipViewAdapter.Change.REMOVED:
+                return ChipViewMetrics.CAUSE_REMOVED;
+
+            case ChipViewAdapter.Change.CHANGED:
+                return ChipViewMetrics.CAUSE_CHANGED;
+
+            case ChipViewAdapter.Change.MOVED:
+                return ChipViewMetrics.CAUSE_MOVED;
+
+            default:
+                return ChipViewMetrics.CAUSE_ADAPTER_CHANGES;
+        }
+    }
+
+    /**
+     * Helper to convert dp to px
+     *
+     * @param dp
+     * @return float
+     */
+    public static float dpToPx(float dp) {
+        float px = dp * (Resources.getSystem().getDisplayMetrics().densityDpi / DisplayMetrics.DENSITY_DEFAULT);
+        return px;
+    }
+
+    /**
+     * Helper to convert px to sp
+     *
+     * @param px
+     * @return float
+     */
+    public static float pxToSp(float px) {
+        float scaledDensity = Resources.getSystem().getDisplayMetrics().scaledDensity;
+        return (px / scaledDensity);
+    }
+
+    /**
+     * Predict the height of a ChipView showing these Chip with this adapter style, from text metrics only
+     * Meant to size list rows ahead of binding, no Chip view is created
+     * Predictions are cached by Chip texts and width, a list changed in place is predicted again
+     *
+     * @param adapter the style : layout, spacing, padding, text size and line spacing
+     * @param chips
+     * @param width   the ChipView width, padding excluded
+     * @return int the height, padding excluded
+     */
+    public static int predictHeight(ChipViewAdapter adapter, List<Chip> chips, int width) {
+        return predictHeight(adapter, chips, width, 0);
+    }
+
+    /**
+     * Predict the height of a ChipView showing these Chip with a line limit, see setMaxLines
+     *
+     * @param adapter
+     * @param chips
+     * @param width    the ChipView width, padding excluded
+     * @param maxLines 0 for no limit
+     * @return int the height, padding excluded
+     */
+    public static int predictHeight(ChipViewAdapter adapter, List<Chip> chips, int width, int maxLines) {
+        return adapter.getHeightPredictor().predictHeight(chips, width, maxLines);
+    }
+
+    /**
+     * Forget the heights predicted with this adapter
+     *
+     * @param adapter
+     */
+    public static void clearPredictedHeights(ChipViewAdapter adapter) {
+        adapter.getHeightPredictor().clear();
+    }
+
+    /**
+     * Wrapper to add a Chip
+     *
+     * @param chip
+     */
+    public void add(Chip chip) {
+        mAdapter.add(chip);
+    }
+
+    /**
+     * Wrapper to remove a Chip
+     *
+     * @param chip
+     */
+    public void remove(Chip chip) {
+        mAdapter.remove(chip);
+    }
+
+    /**
+     * Wrapper to know if a Chip with the same key is displayed
+     *
+     * @param chip
+     * @return boolean
+     */
+    public boolean contains(Chip chip) {
+        return mAdapter.contains(chip);
+    }
+
+    /**
+     * How many Chip do we have
+     *
+     * @return int
+     */
+    public int count() {
+        return mAdapter.count();
+    }
+
+    public List<Chip> getChipList() {
+        return mAdapter.getChipList();
+    }
+
+    public void setChipList(List<Chip> chipList) {
+        mAdapter.setChipList(chipList);
+    }
+
+    /**
+     * Wrapper to add several Chip with a single update
+     *
+     * @param chipList
+     */
+    public void addAll(Collection<? extends Chip> chipList) {
+        mAdapter.addAll(chipList);
+    }
+
+    /**
+     * Wrapper to remove several Chip with a single update
+     *
+     * @param chipList
+     */
+    public void removeAll(Collection<? extends Chip> chipList) {
+        mAdapter.removeAll(chipList);
+    }
+
+    /**
+     * Wrapper to remove every Chip matching the predicate with a single update
+     *
+     * @param predicate
+     */
+    public void removeIf(ChipViewAdapter.ChipPredicate predicate) {
+        mAdapter.removeIf(predicate);
+    }
+
+    /**
+     * Wrapper to replace a Chip in place
+     *
+     * @param oldChip
+     * @param newChip
+     * @return boolean true if replaced
+     */
+    public boolean replace(Chip oldChip, Chip newChip) {
+        return mAdapter.replace(oldChip, newChip);
+    }
+
+    /**
+     * Wrapper to start an adapter batch, changes until endBatch are applied at once
+     */
+    public void beginBatch() {
+        mAdapter.beginBatch();
+    }
+
+    public void endBatch() {
+        mAdapter.endBatch();
+    }
+
+    /**
+     * Wrapper to replace the Chip list with a background diff
+     *
+     * @param chipList
+     */
+    public void submitList(List<Chip> chipList) {
+        mAdapter.submitList(chipList);
+    }
+
+    public ChipViewAdapter getAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * How many lines of Chip the last measure produced
+     *
+     * @return int
+     */
+    public int getLineCount() {
+        return mLayoutEngine.getLineCount();
+    }
+
+    /**
+     * How many child measures have been skipped thanks to the measure cache
+     *
+     * @return int
+     */
+    public int getSkippedMeasureCount() {
+        return mSkippedMeasureCount;
+    }
+
+    public void resetSkippedMeasureCount() {
+        mSkippedMeasureCount = 0;
+    }
+
+    public boolean isVirtualized() {
+        return mVirtualized;
+    }
+
+    /**
+     * Set whether or not only the Chip lines inside the visible rect (plus the prefetch margin) get a view
+     * Line breaks are computed from text metrics, meant for a ChipView inside a scrolling container
+     *
+     * @param virtualized
+     */
+    public void setVirtualized(boolean virtualized) {
+        if (mVirtualized != virtualized) {
+            if (isEstimating())
+                invalidateVirtualized();
+            else
+                recycleChipViews(0, getChildCount());
+
+            mVirtualized = virtualized;
+            requestTextWidths();
+            refresh(ChipViewMetrics.CAUSE_CONFIGURATION);
+        }
+    }
+
+    /**
+     * Whether or not Chip sizes come from text metrics and only the Chip shown get a view
+     *
+     * @return boolean
+     */
+    private boolean isEstimating() {
+        return (mVirtualized || mMaxLines > 0);
+    }
+
+    /**
+     * Let the adapter precompute the text widths once a mode using them is on
+     */
+    private void requestTextWidths() {
+        if (mAdapter != null && (isEstimating() || mDrawMode))
+            mAdapter.onTextWidthsNeeded();
+    }
+
+    public int getMaxLines() {
+        return mMaxLines;
+    }
+
+    /**
+     * Show at most maxLines lines of Chip, the last one ending with an overflow Chip counting the hidden ones
+     * Like the virtualized mode, Chip sizes come from text metrics and the hidden Chip never get a view
+     * The overflow Chip text is given by ChipViewAdapter#getOverflowText
+     *
+     * @param maxLines 0 for no limit
+     */
+    public void setMaxLines(int maxLines) {
+        maxLines = Math.max(0, maxLines);
+
+        if (mMaxLines != maxLines) {
+            if (isEstimating())
+                invalidateVirtualized();
+            else
+                recycleChipViews(0, getChildCount());
+
+            mMaxLines = maxLines;
+            requestTextWidths();
+            refresh(ChipViewMetrics.CAUSE_CONFIGURATION);
+        }
+    }
+
+    /**
+     * Set the listener called when the overflow Chip is clicked, to show every Chip with setMaxLines(0) for example
+     *
+     * @param listener
+     */
+    public void setOnOverflowClickListener(View.OnClickListener listener) {
+        mOverflowClickListener = listener;
+
+        if (mOverflowView != null) {
+            mOverflowView.setOnClickListener(listener);
+            mOverflowView.setClickable(listener != null);
+        }
+    }
+
+    public ChipViewMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Set the listener receiving the duration and work of every pass, ChipViewMetrics.NONE to stop
+     *
+     * @param metrics
+     */
+    public void setMetrics(ChipViewMetrics metrics) {
+        mMetrics = (metrics != null ? metrics : ChipViewMetrics.NONE);
+    }
+
+    /**
+     * Start counting a pass, passes never nest
+     *
+     * @param pass
+     * @return long the start time, 0 without metrics
+     */
+    private long beginPass(int pass) {
+        if (mMetrics == ChipViewMetrics.NONE)
+            return 0;
 
-        for (int i = 0; i < childCount; i++) {
-            View childView = getChildAt(i);
-            MarginLayoutParams layoutParams = (MarginLayoutParams) childView.getLayoutParams();
-            boolean lastChild = (i == childCount - 1);
+        mMetricsCounts.reset();
 
-            if (childView.getVisibility() == GONE) {
-                if (lastChild)
-                    mLineHeightList.add(lineHeight);
+        if (mAdapter != null) {
+            mInflatedCountAtStart = mAdapter.getInflatedViewCount();
+            mDrawableCountAtStart = mAdapter.getAllocatedDrawableCount();
+        }
 
-                continue;
-            }
+        mMetrics.onPassStart(this, pass);
 
-            int childWidth = (childView.getMeasuredWidth() + layoutParams.leftMargin + layoutParams.rightMargin);
-            int childHeight = (childView.getMeasuredHeight() + layoutParams.topMargin + layoutParams.bottomMargin);
-            lineHeight = Math.max(lineHeight, childHeight);
+        return System.nanoTime();
+    }
 
-            if (childWidth > width)
-                width = childWidth;
+    private void endPass(int pass, long startTime) {
+        if (mMetrics == ChipViewMetrics.NONE || startTime == 0)
+            return;
 
-            if (lineWidth + childWidth + getPaddingRight() > width) {
-                mLineHeightList.add(lineHeight);
-                lineWidth = getPaddingLeft() + childWidth;
-            } else
-                lineWidth += childWidth;
+        long duration = System.nanoTime() - startTime;
 
-            if (lastChild)
-                mLineHeightList.add(lineHeight);
+        if (mAdapter != null) {
+            mMetricsCounts.viewsInflated = mAdapter.getInflatedViewCount() - mInflatedCountAtStart;
+            mMetricsCounts.drawablesAllocated = mAdapter.getAllocatedDrawableCount() - mDrawableCountAtStart;
         }
 
-        for (Integer h : mLineHeightList)
-            height += h;
+        mMetrics.onPassEnd(this, pass, duration, mMetricsCounts);
+    }
 
-        setMeasuredDimension(width, height);
+    public boolean isDrawMode() {
+        return mDrawMode;
     }
 
-    @Override
-    protected void onLayout(boolean changed, int l, int t, int r, int b) {
-        if (mAdapter != null) {
-            int width = getMeasuredWidth();
-            int lineWidth = getPaddingLeft();
-            int childCount = getChildCount();
-            int j = 0;
-            int lineHeight = (mLineHeightList.size() > 0 ? mLineHeightList.get(j) : 0);
-            int childY = getPaddingTop();
+    /**
+     * Set whether or not Chip are drawn on the ChipView canvas instead of having a view each
+     * Meant for display only Chip : custom layouts and onLayout are ignored, only the default Chip style applies
+     * Accessibility services see each drawn Chip, and the overflow Chip, as a virtual view
+     *
+     * @param drawMode
+     */
+    public void setDrawMode(boolean drawMode) {
+        if (mDrawMode != drawMode) {
+            if (isEstimating())
+                invalidateVirtualized();
+            else
+                recycleChipViews(0, getChildCount());
+
+            mDrawMode = drawMode;
+            mPressedPosition = -1;
+            setWillNotDraw(!drawMode);
+
+            // Drawn Chip have no view, accessibility services get virtual ones
+            if (drawMode && mAccessibilityHelper == null)
+                mAccessibilityHelper = new DrawnChipAccessibilityHelper();
+
+            ViewCompat.setAccessibilityDelegate(this, (drawMode ? mAccessibilityHelper : null));
+            requestTextWidths();
+            refresh(ChipViewMetrics.CAUSE_CONFIGURATION);
+        }
+    }
 
-            for (int i = 0; i < childCount; i++) {
-                final Chip chip = mAdapter.getChipList().get(i);
-                View childView = getChildAt(i);
-                ViewGroup.MarginLayoutParams layoutParams = (ViewGroup.MarginLayoutParams) childView.getLayoutParams();
+    public int getPrefetchMargin() {
+        return mPrefetchMargin;
+    }
 
-                if (childView.getVisibility() == View.GONE)
-                    continue;
+    /**
+     * Set how far above and below the visible rect Chip lines are bound in virtualized mode
+     *
+     * @param prefetchMargin in px
+     */
+    public void setPrefetchMargin(int prefetchMargin) {
+        mPrefetchMargin = prefetchMargin;
 
-                int childWidth = (childView.getMeasuredWidth() + layoutParams.leftMargin + layoutParams.rightMargin);
-                int childHeight = (childView.getMeasuredHeight() + layoutParams.topMargin + layoutParams.bottomMargin);
+        if (isEstimating())
+            bindVisibleLines(false);
+    }
 
-                if (childWidth > width)
-                    width = childWidth;
+    public ChipViewPool getViewPool() {
+        return mViewPool;
+    }
 
-                if (lineWidth + childWidth + getPaddingRight() > width) {
-                    childY += lineHeight;
-                    j++;
-                    lineHeight = mLineHeightList.get(j);
-                    lineWidth = getPaddingLeft() + childWidth;
-                } else
-                    lineWidth += childWidth;
+    /**
+     * Set the pool used to recycle Chip views, can be shared between several ChipView
+     *
+     * @param viewPool
+     */
+    public void setViewPool(ChipViewPool viewPool) {
+        mViewPool = viewPool;
+    }
 
-                int childX = lineWidth - childWidth;
+    public void setAdapter(ChipViewAdapter adapter) {
+        if (mAdapter != null)
+            mAdapter.unregisterObserver(mAdapterObserver);
 
-                childView.layout((childX + layoutParams.leftMargin), (childY + layoutParams.topMargin), (lineWidth - layoutParams.rightMargin), (childY + childHeight - layoutParams.bottomMargin));
+        mAdapter = adapter;
+        dropOverflowView();
+        mSizeEstimator = new ChipSizeEstimator(adapter);
+        mCanvasRenderer = new ChipCanvasRenderer(adapter);
+        mAdapter.registerObserver(mAdapterObserver);
 
-                if (mListener != null) {
-                    childView.setOnClickListener(new View.OnClickListener() {
-                        @Override
-                        public void onClick(View v) {
-                            mListener.onChipClick(chip);
-                        }
-                    });
-                }
-            }
-        }
-    }
+        if (mSelection.setAdapter(adapter))
+            dispatchSelectionChanged();
 
-    @Override
-    protected LayoutParams generateDefaultLayoutParams() {
-        return new MarginLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+        requestTextWidths();
+        refresh(ChipViewMetrics.CAUSE_ADAPTER);
     }
 
-    @Override
-    protected LayoutParams generateLayoutParams(LayoutParams p) {
-        return new MarginLayoutParams(p);
+    /**
+     * Set overall Chip background color by res id
+     * Can be fine tuned by overriding @see com.scanners.android.bao.view.ChipTextView.Chip#getBackgroundRes
+     *
+     * @param backgroundRes
+     */
+    public void setChipBackgroundRes(@DrawableRes int backgroundRes) {
+        mAdapter.setChipBackgroundRes(backgroundRes);
     }
 
-    @Override
-    public LayoutParams generateLayoutParams(AttributeSet attrs) {
-        return new MarginLayoutParams(getContext(), attrs);
+    public int getChipLayoutRes() {
+        return mAdapter.getChipLayoutRes();
     }
 
-    public void refresh() {
-        if (mAdapter != null) {
-            removeAllViews();
-
-            for (int i = 0; i < mAdapter.count(); i++) {
-                View view = mAdapter.getView(this, i);
+    /**
+     * Set overall Chip layout by res id
+     * Can be fine tuned by overriding @see com.scanners.android.bao.view.ChipTextView.Chip#getLayoutRes
+     */
+    public void setChipLayoutRes(@LayoutRes int chipRes) {
+        mAdapter.setChipLayoutRes(chipRes);
+    }
 
-                if (view != null) {
-                    if (mListener != null) {
-                        view.setClickable(true);
-                        view.setFocusable(true);
-                    }
+    /**
+     * Set Chip onClick listener
+     *
+     * @param listener
+     */
+    public void setOnChipClickListener(OnChipClickListener listener) {
+        boolean wasClickable = isChipClickable();
+        mListener = listener;
 
-                    addView(view);
-                }
-            }
+        if (wasClickable != isChipClickable())
+            updateChipClickable(!wasClickable);
+    }
 
-            invalidate();
-        }
+    public int getChoiceMode() {
+        return mChoiceMode;
     }
 
     /**
-     * Helper to convert dp to px
+     * Set how Chip can be selected by a click, clears the selection
+     * CHOICE_MODE_SINGLE keeps one selected Chip at most, CHOICE_MODE_MULTIPLE toggles each clicked Chip
      *
-     * @param dp
-     * @return float
+     * @param choiceMode CHOICE_MODE_NONE, CHOICE_MODE_SINGLE or CHOICE_MODE_MULTIPLE
      */
-    public static float dpToPx(float dp) {
-        float px = dp * (Resources.getSystem().getDisplayMetrics().densityDpi / DisplayMetrics.DENSITY_DEFAULT);
-        return px;
+    public void setChoiceMode(int choiceMode) {
+        if (mChoiceMode == choiceMode)
+            return;
+
+        boolean wasClickable = isChipClickable();
+        mChoiceMode = choiceMode;
+
+        if (wasClickable != isChipClickable())
+            updateChipClickable(!wasClickable);
+
+        clearSelection();
     }
 
     /**
-     * Helper to convert px to sp
+     * Set the listener notified once per selection change, a bulk operation being a single change
      *
-     * @param px
-     * @return float
+     * @param listener
      */
-    public static float pxToSp(float px) {
-        float scaledDensity = Resources.getSystem().getDisplayMetrics().scaledDensity;
-        return (px / scaledDensity);
+    public void setOnChipSelectionChangedListener(OnChipSelectionChangedListener listener) {
+        mSelectionListener = listener;
+    }
+
+    public boolean isChipSelected(int position) {
+        return mSelection.isSelected(position);
     }
 
     /**
-     * Wrapper to add a Chip
+     * Select or unselect a Chip, only its view is updated
+     * In CHOICE_MODE_SINGLE, selecting a Chip unselects the others
      *
-     * @param chip
+     * @param position
+     * @param selected
      */
-    public void add(Chip chip) {
-        mAdapter.add(chip);
+    public void setChipSelected(int position, boolean selected) {
+        setChipRangeSelected(position, 1, selected);
     }
 
     /**
-     * Wrapper to remove a Chip
+     * Select or unselect a range of Chip, the listener is notified once
      *
-     * @param chip
+     * @param positionStart
+     * @param itemCount
+     * @param selected
      */
-    public void remove(Chip chip) {
-        mAdapter.remove(chip);
+    public void setChipRangeSelected(int positionStart, int itemCount, boolean selected) {
+        boolean changed = false;
+
+        if (selected && mChoiceMode == CHOICE_MODE_SINGLE) {
+            // Only the last one of the range stays selected
+            positionStart += itemCount - 1;
+            itemCount = 1;
+
+            if (!mSelection.isSelected(positionStart)) {
+                int[] previous = mSelection.getPositions();
+
+                for (int position : previous) {
+                    mSelection.setSelected(position, false);
+                    updateSelectedView(position);
+                }
+
+                changed = (previous.length > 0);
+            }
+        }
+
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            if (mSelection.setSelected(i, selected)) {
+                changed = true;
+                updateSelectedView(i);
+            }
+        }
+
+        if (changed)
+            dispatchSelectionChanged();
     }
 
     /**
-     * How many Chip do we have
+     * Toggle the selection of a Chip
      *
-     * @return int
+     * @param position
      */
-    public int count() {
-        return mAdapter.count();
+    public void toggleChipSelected(int position) {
+        setChipSelected(position, !mSelection.isSelected(position));
     }
 
-    public List<Chip> getChipList() {
-        return mAdapter.getChipList();
+    /**
+     * Select every Chip, ignored in CHOICE_MODE_SINGLE
+     */
+    public void selectAll() {
+        if (mChoiceMode != CHOICE_MODE_SINGLE && mSelection.selectAll())
+            onSelectionChanged();
     }
 
-    public void setChipList(List<Chip> chipList) {
-        mAdapter.setChipList(chipList);
+    public void clearSelection() {
+        if (mSelection.clear())
+            onSelectionChanged();
     }
 
-    public ChipViewAdapter getAdapter() {
-        return mAdapter;
+    /**
+     * Select every unselected Chip and unselect the others, ignored in CHOICE_MODE_SINGLE
+     */
+    public void invertSelection() {
+        if (mChoiceMode != CHOICE_MODE_SINGLE && mSelection.invert())
+            onSelectionChanged();
     }
 
-    public void setAdapter(ChipViewAdapter adapter) {
-        mAdapter = adapter;
-        mAdapter.deleteObservers();
-        mAdapter.addObserver(this);
-        refresh();
+    public int getSelectedCount() {
+        return mSelection.getCount();
     }
 
     /**
-     * Set overall Chip background color by res id
-     * Can be fine tuned by overriding @see com.scanners.android.bao.view.ChipTextView.Chip#getBackgroundRes
-     *
-     * @param backgroundRes
+     * @return the selected positions, in ascending order
      */
-    public void setChipBackgroundRes(@DrawableRes int backgroundRes) {
-        mAdapter.setChipBackgroundRes(backgroundRes);
+    public int[] getSelectedPositions() {
+        return mSelection.getPositions();
     }
 
-    public int getChipLayoutRes() {
-        return mAdapter.getChipLayoutRes();
+    public List<Chip> getSelectedChips() {
+        return mSelection.getChips();
     }
 
-    /**
-     * Set overall Chip layout by res id
-     * Can be fine tuned by overriding @see com.scanners.android.bao.view.ChipTextView.Chip#getLayoutRes
-     */
-    public void setChipLayoutRes(@LayoutRes int chipRes) {
-        mAdapter.setChipLayoutRes(chipRes);
+    private void onChipClickSelection(int position) {
+        if (mChoiceMode == CHOICE_MODE_SINGLE)
+            setChipSelected(position, true);
+        else
+            toggleChipSelected(position);
+    }
+
+    private void onSelectionChanged() {
+        updateSelectedViews();
+        dispatchSelectionChanged();
+    }
+
+    private void dispatchSelectionChanged() {
+        if (mSelectionListener != null)
+            mSelectionListener.onChipSelectionChanged(this);
     }
 
     /**
-     * Set Chip onClick listener
+     * Return the adapter position of a bound Chip view
      *
-     * @param listener
+     * @param view
+     * @return int or -1 if the view isn't bound
      */
-    public void setOnChipClickListener(OnChipClickListener listener) {
-        mListener = listener;
+    private int getChipPosition(View view) {
+        if (isEstimating()) {
+            int index = mVirtualChildren.indexOfValue(view);
+
+            return (index >= 0 ? mVirtualChildren.keyAt(index) : -1);
+        }
+
+        return indexOfChild(view);
+    }
+
+    private void updateSelectedView(int position) {
+        if (mDrawMode)
+            invalidate();
+        else if (isEstimating()) {
+            View view = mVirtualChildren.get(position);
+
+            if (view != null)
+                view.setSelected(mSelection.isSelected(position));
+        } else if (mPendingChangeCount == 0 && !mPendingFullRefresh && position < getChildCount())
+            getChildAt(position).setSelected(mSelection.isSelected(position));
+    }
+
+    private void updateSelectedViews() {
+        if (mDrawMode)
+            invalidate();
+        else if (isEstimating()) {
+            for (int i = 0; i < mVirtualChildren.size(); i++)
+                mVirtualChildren.valueAt(i).setSelected(mSelection.isSelected(mVirtualChildren.keyAt(i)));
+        } else if (mPendingChangeCount == 0 && !mPendingFullRefresh) {
+            for (int i = 0; i < getChildCount(); i++)
+                getChildAt(i).setSelected(mSelection.isSelected(i));
+        }
     }
 
     public boolean isToleratingDuplicate() {
@@ -337,6 +1975,20 @@ public class ChipView extends ViewGroup implements Observer {
         mAdapter.setHasBackground(hasBackground);
     }
 
+    /**
+     * Start a style edit, every Chip style setter called until applyStyleEdit is applied in one pass
+     */
+    public void beginStyleEdit() {
+        mAdapter.beginStyleEdit();
+    }
+
+    /**
+     * Apply every Chip style setter called since beginStyleEdit
+     */
+    public void applyStyleEdit() {
+        mAdapter.applyStyleEdit();
+    }
+
     public int getChipSpacing() {
         return mAdapter.getChipSpacing();
     }
@@ -401,8 +2053,216 @@ public class ChipView extends ViewGroup implements Observer {
         mAdapter.setChipTextSize(chipTextSize);
     }
 
-    @Override
-    public void update(Observable observable, Object data) {
-        refresh();
+    /**
+     * Apply a style change to the Chip already shown, without creating nor binding them again
+     * Spacing only lays them out again, padding and text size measure them again
+     * and backgrounds are resolved again from the shared ChipBackgroundCache states
+     *
+     * @param changes ChipViewAdapter.STYLE_* flags
+     */
+    private void applyStyleChanges(int changes) {
+        // Nothing to show, applied once shown or measured again
+        if (mPendingRefresh || !isShown()) {
+            if ((changes & ChipViewAdapter.STYLE_LAYOUT) != 0)
+                mPendingRefresh = true;
+            else
+                mDeferredStyleChanges |= changes;
+
+            requestLayout();
+            return;
+        }
+
+        applyStyleChangesNow(mDeferredStyleChanges | changes);
+    }
+
+    private void applyStyleChangesNow(int changes) {
+        mDeferredStyleChanges = 0;
+
+        if ((changes & ChipViewAdapter.STYLE_LAYOUT) != 0 || mPendingFullRefresh) {
+            dropOverflowView();
+            refresh(((changes & ChipViewAdapter.STYLE_LAYOUT) != 0 ? ChipViewMetrics.CAUSE_STYLE : mPendingFullRefreshCause));
+            return;
+        }
+
+        // Children must match the adapter positions before being restyled
+        flush();
+
+        boolean sizeChanged = (changes & (ChipViewAdapter.STYLE_SPACING | ChipViewAdapter.STYLE_PADDING | ChipViewAdapter.STYLE_TEXT)) != 0;
+
+        if (mDrawMode)
+            mCanvasRenderer.invalidate();
+        else if (mAdapter != null) {
+            if (isEstimating() && sizeChanged) {
+                mSizeEstimator.invalidate();
+                mEstimatesValid = false;
+            }
+
+            if (isEstimating()) {
+                for (int i = 0; i < mVirtualChildren.size(); i++)
+                    mAdapter.applyStyle(mVirtualChildren.valueAt(i), mVirtualChildren.keyAt(i), changes);
+
+                if (mOverflowView != null && mOverflowBoundCount > 0)
+                    mAdapter.bindOverflowView(mOverflowView, mOverflowBoundCount);
+            } else {
+                int childCount = Math.min(getChildCount(), mAdapter.count());
+
+                for (int i = 0; i < childCount; i++)
+                    mAdapter.applyStyle(getChildAt(i), i, changes);
+            }
+        }
+
+        if (sizeChanged)
+            requestLayout();
+
+        invalidate();
+    }
+
+    private void queueChange(int type, int positionStart, int itemCount, int toPosition, Object payload) {
+        // A full refresh is coming anyway
+        if (mPendingRefresh)
+            return;
+
+        // Everything waits for the next frame, so any number of updates within a frame collapse into one pass
+        if (type == ChipViewAdapter.Change.FULL || mPendingChangeCount >= MAX_PENDING_CHANGES) {
+            // A whole list change is worth reporting over the changes it replaces
+            if (type == ChipViewAdapter.Change.FULL || !mPendingFullRefresh)
+                mPendingFullRefreshCause = (type == ChipViewAdapter.Change.FULL ? ChipViewMetrics.CAUSE_DATA_SET_CHANGED : ChipViewMetrics.CAUSE_TOO_MANY_CHANGES);
+
+            mPendingFullRefresh = true;
+            clearPendingChanges();
+        } else if (!mPendingFullRefresh) {
+            mPendingPayloads[mPendingChangeCount] = payload;
+            int offset = 4 * mPendingChangeCount++;
+            mPendingChanges[offset] = type;
+            mPendingChanges[offset + 1] = positionStart;
+            mPendingChanges[offset + 2] = itemCount;
+            mPendingChanges[offset + 3] = toPosition;
+        }
+
+        // Nothing to show, the changes wait for the next attach or measure
+        if (isShown())
+            scheduleFlush();
+        else
+            requestLayout();
+    }
+
+    private void clearPendingChanges() {
+        Arrays.fill(mPendingPayloads, 0, mPendingChangeCount, null);
+        mPendingChangeCount = 0;
+    }
+
+    /**
+     * Expose the drawn Chip as virtual views, the id of a Chip is its position
+     */
+    private class DrawnChipAccessibilityHelper extends ExploreByTouchHelper {
+        private static final int OVERFLOW_ID = Integer.MAX_VALUE;
+
+        private final Rect mBounds = new Rect();
+
+        DrawnChipAccessibilityHelper() {
+            super(ChipView.this);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int position = mCanvasRenderer.findChipAt(x, y, mLayoutEngine, mChildWidths, mChildHeights);
+
+            if (position >= 0)
+                return position;
+
+            if (getVirtualViewBounds(OVERFLOW_ID, mBounds) && mBounds.contains((int) x, (int) y))
+                return OVERFLOW_ID;
+
+            return INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            int count = Math.min(mLayoutEngine.getVisibleCount(), mAdapter.count());
+
+            for (int i = 0; i < count; i++) {
+                if (mChildWidths[i] >= 0)
+                    virtualViewIds.add(i);
+            }
+
+            if (mLayoutEngine.getOverflowCount() > 0)
+                virtualViewIds.add(OVERFLOW_ID);
+        }
+
+        @Override
+        protected void onPopulateEventForVirtualView(int virtualViewId, AccessibilityEvent event) {
+            event.setContentDescription(getVirtualViewText(virtualViewId));
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            node.setContentDescription(getVirtualViewText(virtualViewId));
+
+            // The bounds can't be empty, a Chip removed since the last measure gets a placeholder
+            if (!getVirtualViewBounds(virtualViewId, mBounds))
+                mBounds.set(0, 0, 1, 1);
+
+            node.setBoundsInParent(mBounds);
+
+            if (virtualViewId == OVERFLOW_ID)
+                return;
+
+            if (isChipClickable()) {
+                node.setClickable(true);
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            }
+
+            if (mChoiceMode != CHOICE_MODE_NONE) {
+                node.setCheckable(true);
+                node.setChecked(mSelection.isSelected(virtualViewId));
+            }
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, Bundle arguments) {
+            if (action != AccessibilityNodeInfoCompat.ACTION_CLICK || virtualViewId == OVERFLOW_ID || !isChipClickable())
+                return false;
+
+            return performDrawnChipClick(virtualViewId);
+        }
+
+        private CharSequence getVirtualViewText(int virtualViewId) {
+            CharSequence text;
+
+            if (virtualViewId == OVERFLOW_ID)
+                text = mAdapter.getOverflowText(mLayoutEngine.getOverflowCount());
+            else {
+                Chip chip = mAdapter.getChip(virtualViewId);
+                text = (chip != null ? chip.getText() : null);
+            }
+
+            return (text != null ? text : "");
+        }
+
+        /**
+         * @return false if the Chip isn't laid out
+         */
+        private boolean getVirtualViewBounds(int virtualViewId, Rect bounds) {
+            if (virtualViewId == OVERFLOW_ID) {
+                if (mLayoutEngine.getOverflowCount() == 0)
+                    return false;
+
+                CharSequence text = mAdapter.getOverflowText(mLayoutEngine.getOverflowCount());
+                int left = mLayoutEngine.getOverflowLeft();
+                int top = mLayoutEngine.getOverflowTop();
+                bounds.set(left, top, left + mCanvasRenderer.measureWidth(text) - mAdapter.getChipSpacing(), top + mCanvasRenderer.measureHeight() - mAdapter.getLineSpacing());
+
+                return true;
+            }
+
+            if (virtualViewId < 0 || virtualViewId >= Math.min(mLayoutEngine.getVisibleCount(), mAdapter.count()) || mChildWidths[virtualViewId] < 0)
+                return false;
+
+            int left = mLayoutEngine.getLeft(virtualViewId);
+            int top = mLayoutEngine.getTop(virtualViewId);
+            bounds.set(left, top, left + mChildWidths[virtualViewId] - mAdapter.getChipSpacing(), top + mChildHeights[virtualViewId] - mAdapter.getLineSpacing());
+
+            return true;
+        }
     }
 }
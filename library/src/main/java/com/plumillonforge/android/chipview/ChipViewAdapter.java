@@ -19,30 +19,60 @@ package com.plumillonforge.android.chipview;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.GradientDrawable;
-import android.graphics.drawable.StateListDrawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.ColorInt;
 import android.support.annotation.ColorRes;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.LayoutRes;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.text.TextUtils;
 import android.util.AttributeSet;
-import android.util.StateSet;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Observable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Created by Plumillon Forge on 09/10/15.
  */
-public abstract class ChipViewAdapter extends Observable {
+public abstract class ChipViewAdapter {
+    public static final long NO_ID = -1;
+    /**
+     * Payload telling that only the Chip text changed, see bindView(View, int, List)
+     */
+    public static final Object PAYLOAD_TEXT = new Object();
+    /**
+     * Payload telling that only the Chip background changed, see bindView(View, int, List)
+     */
+    public static final Object PAYLOAD_BACKGROUND = new Object();
+
+    // Style changes, see Observer#onStyleChanged
+    public static final int STYLE_SPACING = 1;
+    public static final int STYLE_PADDING = 1 << 1;
+    public static final int STYLE_TEXT = 1 << 2;
+    public static final int STYLE_BACKGROUND = 1 << 3;
+    public static final int STYLE_LAYOUT = 1 << 4;
+
+    // Past this many changes in a batch, a full refresh is cheaper
+    private static final int MAX_BATCH_CHANGES = 64;
+
     private Context mContext;
     private AttributeSet mAttributeSet;
     private int mChipSpacing;
@@ -57,8 +87,72 @@ public abstract class ChipViewAdapter extends Observable {
     private int mChipBackgroundRes;
     private boolean mHasBackground = true;
     private boolean mToleratingDuplicate = false;
+    private boolean mHasStableIds = false;
     private LayoutInflater mInflater;
+    private ChipBackgroundCache mBackgroundCache;
+    private Executor mDiffExecutor;
+    private Handler mMainHandler;
+    private volatile int mSubmitGeneration;
+    private int mModificationCount;
+    private boolean mPrecomputeTextEnabled;
+    private SparseArray<TextPaint> mTextPaints;
+    private SparseArray<HashMap<String, Float>> mTextWidths;
+    private int mTextGeneration;
+    private int mTextWidthsRequest = -1;
+    private ViewGroup mMeasureParent;
+    // Main thread counters read by ChipViewMetrics
+    private int mInflatedViewCount;
+    private int mAllocatedDrawableCount;
+    private final ChipDiff.Callback mDiffCallback = new ChipDiff.Callback() {
+        @Override
+        public Object getKey(Chip chip) {
+            return getChipKey(chip);
+        }
+
+        @Override
+        public boolean areContentsTheSame(Chip oldChip, Chip newChip) {
+            return ChipViewAdapter.this.areContentsTheSame(oldChip, newChip);
+        }
+
+        @Override
+        public Object getChangePayload(Chip oldChip, Chip newChip) {
+            return ChipViewAdapter.this.getChangePayload(oldChip, newChip);
+        }
+    };
+    private final ChipDiff.UpdateCallback mDiffUpdateCallback = new ChipDiff.UpdateCallback() {
+        // The Chip index is built with the diff, bypass the public notify which may drop it
+        @Override
+        public void onInserted(int position, int count) {
+            notifyUpdate(Change.INSERTED, position, count, 0);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            notifyUpdate(Change.REMOVED, position, count, 0);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            notifyUpdate(Change.MOVED, fromPosition, 1, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            notifyUpdate(Change.CHANGED, position, count, 0, payload);
+        }
+    };
+
+    private int mBatchDepth;
+    private int mStyleEditDepth;
+    private ChipHeightPredictor mHeightPredictor;
+    private int mPendingStyleChanges;
+    private boolean mPendingFullChange;
+    private ArrayList<Change> mPendingChanges;
+    private ArrayList<Observer> mObservers;
+
+    private static Executor sDiffExecutor;
     private List<Chip> mChipList;
+    private HashMap<Object, Integer> mChipIndex;
 
     /**
      * Return the Chip layout res id
@@ -94,6 +188,8 @@ public abstract class ChipViewAdapter extends Observable {
 
     /**
      * Have a chance to modify the Chip layout
+     * Chip views are recycled : any state changed here for some Chip must be restored for the others,
+     * otherwise it shows up on the next Chip bound to the view
      */
     public abstract void onLayout(View view, int position);
 
@@ -105,6 +201,11 @@ public abstract class ChipViewAdapter extends Observable {
         mContext = context;
         mInflater = (LayoutInflater) mContext.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
         mChipList = new ArrayList<>();
+        mPendingChanges = new ArrayList<>();
+        mObservers = new ArrayList<>();
+        mTextPaints = new SparseArray<>();
+        mBackgroundCache = ChipBackgroundCache.getDefault();
+        mMainHandler = new Handler(Looper.getMainLooper());
         setAttributeSet(attributeSet);
     }
 
@@ -135,102 +236,602 @@ public abstract class ChipViewAdapter extends Observable {
         }
     }
 
+    /**
+     * Create and bind a new view for a Chip, ChipView doesn't call it anymore since Chip views are recycled
+     *
+     * @param parent
+     * @param position
+     * @return View or null if there is no Chip at this position
+     * @deprecated override bindView to change how a Chip is bound, or onLayout to fine tune its view
+     */
+    @Deprecated
     public View getView(ViewGroup parent, int position) {
         View view = null;
+
+        if (getChip(position) != null) {
+            view = createView(parent, getViewType(position));
+            bindView(view, position);
+        }
+
+        return view;
+    }
+
+    /**
+     * Return the resolved Chip layout res id, used as the recycling type
+     *
+     * @return int
+     */
+    public int getViewType(int position) {
+        return (getLayoutRes(position) != 0 ? getLayoutRes(position) : getChipLayoutRes());
+    }
+
+    /**
+     * Create an unbound Chip view for this type
+     *
+     * @param parent
+     * @param viewType
+     * @return View
+     */
+    public View createView(ViewGroup parent, int viewType) {
+        if (viewType != 0)
+            mInflatedViewCount++;
+
+        return createView(mInflater, parent, viewType);
+    }
+
+    /**
+     * Create an unbound Chip view with this inflater, can be called from a background thread
+     * as long as the inflater isn't used by another thread at the same time
+     *
+     * @param inflater
+     * @param parent
+     * @param viewType
+     * @return View
+     */
+    View createView(LayoutInflater inflater, ViewGroup parent, int viewType) {
+        Context context = inflater.getContext();
+        View view;
+        boolean fallbackRightMargin = true;
+        boolean fallbackBottomMargin = true;
+
+        if (viewType == 0) {
+            LinearLayout.LayoutParams layoutParams = new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT);
+            view = new LinearLayout(context);
+            view.setLayoutParams(layoutParams);
+            ((LinearLayout) view).setOrientation(LinearLayout.HORIZONTAL);
+            ((LinearLayout) view).setGravity(Gravity.CENTER_VERTICAL);
+
+            TextView text = new TextView(context);
+            text.setId(android.R.id.text1);
+            ((LinearLayout) view).addView(text);
+        } else {
+            view = inflater.inflate(viewType, parent, false);
+            ViewGroup.MarginLayoutParams layoutParams = (ViewGroup.MarginLayoutParams) view.getLayoutParams();
+            fallbackRightMargin = (layoutParams.rightMargin <= 0);
+            fallbackBottomMargin = (layoutParams.bottomMargin <= 0);
+        }
+
+        view.setTag(R.id.chip_view_holder, new ChipViewHolder(view, viewType, fallbackRightMargin, fallbackBottomMargin));
+
+        return view;
+    }
+
+    /**
+     * Bind the Chip at position to a view created by createView, either fresh or recycled
+     *
+     * @param view
+     * @param position
+     */
+    public void bindView(View view, int position) {
         Chip chip = getChip(position);
+        ChipViewHolder holder = ChipViewHolder.from(view);
+        long chipId = (mHasStableIds ? getChipId(chip) : NO_ID);
+        // Same Chip with the same text, the view keeps its text layout and its measure
+        boolean sameText = (chipId != NO_ID && chipId == holder.chipId && holder.text != null && TextUtils.equals(holder.text.getText(), chip.getText()));
+        holder.chip = chip;
+        holder.chipId = chipId;
+        holder.needsBind = false;
 
-        if (chip != null) {
-            int chipLayoutRes = (getLayoutRes(position) != 0 ? getLayoutRes(position) : getChipLayoutRes());
-            Drawable chipBackground = generateBackgroundSelector(position);
-
-            if (chipLayoutRes == 0) {
-                LinearLayout.LayoutParams layoutParams = new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT);
-                layoutParams.setMargins(0, 0, mChipSpacing, mLineSpacing);
-                view = new LinearLayout(mContext);
-                view.setLayoutParams(layoutParams);
-                ((LinearLayout) view).setOrientation(LinearLayout.HORIZONTAL);
-                ((LinearLayout) view).setGravity(Gravity.CENTER_VERTICAL);
-                view.setPadding(mChipSidePadding, mChipPadding, mChipSidePadding, mChipPadding);
-
-                TextView text = new TextView(mContext);
-                text.setId(android.R.id.text1);
-                ((LinearLayout) view).addView(text);
-            } else {
-                view = mInflater.inflate(chipLayoutRes, parent, false);
-                ViewGroup.MarginLayoutParams layoutParams = (ViewGroup.MarginLayoutParams) view.getLayoutParams();
-                layoutParams.setMargins(layoutParams.leftMargin, layoutParams.topMargin, (layoutParams.rightMargin > 0 ? layoutParams.rightMargin : mChipSpacing), (layoutParams.bottomMargin > 0 ? layoutParams.bottomMargin : mLineSpacing));
-            }
+        if (!sameText)
+            holder.invalidateMeasure();
 
-            if (view != null) {
-                TextView text = (TextView) view.findViewById(android.R.id.text1);
-                View content = view.findViewById(android.R.id.content);
+        bindStyle(view, holder);
 
-                if (text != null) {
-                    text.setText(chip.getText());
-                    text.setGravity(Gravity.CENTER);
+        if (holder.text != null && !sameText)
+            holder.text.setText(chip.getText());
 
-                    if (mChipTextSize > 0)
-                        text.setTextSize(TypedValue.COMPLEX_UNIT_SP, mChipTextSize);
-                }
+        bindBackground(view, holder, position);
+        onLayout(view, position);
+    }
 
-                if (mHasBackground) {
-                    if (android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.JELLY_BEAN) {
-                        if (content != null)
-                            content.setBackgroundDrawable(chipBackground);
-                        else
-                            view.setBackgroundDrawable(chipBackground);
-                    } else {
-                        if (content != null)
-                            content.setBackground(chipBackground);
-                        else
-                            view.setBackground(chipBackground);
-                    }
-                }
+    /**
+     * Apply style changes to a bound view in place, without binding its Chip again
+     *
+     * @param view
+     * @param position
+     * @param changes  STYLE_* flags, STYLE_LAYOUT needs new views and isn't handled here
+     */
+    void applyStyle(View view, int position, int changes) {
+        ChipViewHolder holder = ChipViewHolder.from(view);
+
+        if (holder == null)
+            return;
+
+        if ((changes & (STYLE_SPACING | STYLE_PADDING | STYLE_TEXT)) != 0)
+            bindStyle(view, holder);
+
+        if ((changes & STYLE_BACKGROUND) != 0)
+            bindBackground(view, holder, position);
+
+        onLayout(view, position);
+    }
 
-                onLayout(view, position);
+    private void bindBackground(View view, ChipViewHolder holder, int position) {
+        if (mHasBackground)
+            setChipBackground(view, holder, generateBackgroundSelector(position));
+    }
+
+    private void setChipBackground(View view, ChipViewHolder holder, Drawable chipBackground) {
+        if (android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.JELLY_BEAN) {
+            if (holder.content != null)
+                holder.content.setBackgroundDrawable(chipBackground);
+            else
+                view.setBackgroundDrawable(chipBackground);
+        } else {
+            if (holder.content != null)
+                holder.content.setBackground(chipBackground);
+            else
+                view.setBackground(chipBackground);
+        }
+    }
+
+    /**
+     * Return the text of the overflow Chip standing for the Chip hidden by ChipView#setMaxLines
+     * Override it for your own wording, "+N" by default
+     *
+     * @param hiddenCount
+     * @return CharSequence
+     */
+    public CharSequence getOverflowText(int hiddenCount) {
+        return "+" + hiddenCount;
+    }
+
+    /**
+     * Create the overflow Chip view, a Chip with the overall layout by default
+     *
+     * @param parent
+     * @return View
+     */
+    public View createOverflowView(ViewGroup parent) {
+        return createView(parent, getChipLayoutRes());
+    }
+
+    /**
+     * Bind the overflow Chip view, with the overall style and background
+     *
+     * @param view
+     * @param hiddenCount
+     */
+    public void bindOverflowView(View view, int hiddenCount) {
+        ChipViewHolder holder = ChipViewHolder.from(view);
+
+        if (holder == null)
+            return;
+
+        bindStyle(view, holder);
+
+        if (holder.text != null)
+            holder.text.setText(getOverflowText(hiddenCount));
+
+        if (mHasBackground)
+            setChipBackground(view, holder, generateOverflowBackground());
+    }
+
+    Drawable generateOverflowBackground() {
+        mAllocatedDrawableCount++;
+
+        if (mChipBackgroundRes != 0)
+            return mBackgroundCache.getDrawable(mContext.getResources(), mChipBackgroundRes);
+
+        return mBackgroundCache.getSelector(mChipBackgroundColor, mChipBackgroundColorSelected, mChipCornerRadius);
+    }
+
+    /**
+     * Bind only what changed in the Chip at position, the payloads are the ones given to notifyChipChanged
+     * PAYLOAD_TEXT only sets the text again, PAYLOAD_BACKGROUND only applies the background selector again,
+     * any other payload does a full bind
+     * Override it to handle your own payloads, the background and layout are then left untouched
+     *
+     * @param view
+     * @param position
+     * @param payloads empty for a full bind
+     */
+    public void bindView(View view, int position, List<Object> payloads) {
+        ChipViewHolder holder = ChipViewHolder.from(view);
+        boolean textChanged = false;
+        boolean backgroundChanged = false;
+
+        for (int i = 0; i < payloads.size(); i++) {
+            if (payloads.get(i) == PAYLOAD_TEXT)
+                textChanged = true;
+            else if (payloads.get(i) == PAYLOAD_BACKGROUND)
+                backgroundChanged = true;
+            else {
+                bindView(view, position);
+                return;
             }
         }
 
-        return view;
+        if (payloads.isEmpty() || holder.chip == null) {
+            bindView(view, position);
+            return;
+        }
+
+        Chip chip = getChip(position);
+        holder.chip = chip;
+        holder.chipId = (mHasStableIds ? getChipId(chip) : NO_ID);
+        holder.needsBind = false;
+
+        // The TextView only requests a layout when the text actually changed
+        if (textChanged && holder.text != null && !TextUtils.equals(holder.text.getText(), chip.getText()))
+            holder.text.setText(chip.getText());
+
+        if (backgroundChanged)
+            bindBackground(view, holder, position);
+    }
+
+    /**
+     * Apply the Chip independent settings: spacing, padding and text size
+     *
+     * @param view
+     * @param holder
+     */
+    void bindStyle(View view, ChipViewHolder holder) {
+        ViewGroup.MarginLayoutParams layoutParams = (ViewGroup.MarginLayoutParams) view.getLayoutParams();
+
+        if (holder.fallbackRightMargin)
+            layoutParams.rightMargin = mChipSpacing;
+
+        if (holder.fallbackBottomMargin)
+            layoutParams.bottomMargin = mLineSpacing;
+
+        if (holder.viewType == 0)
+            view.setPadding(mChipSidePadding, mChipPadding, mChipSidePadding, mChipPadding);
+
+        if (holder.text != null) {
+            holder.text.setGravity(Gravity.CENTER);
+
+            if (mChipTextSize > 0)
+                holder.text.setTextSize(TypedValue.COMPLEX_UNIT_SP, mChipTextSize);
+        }
     }
 
     private Drawable generateBackgroundSelector(int position) {
-        if (getBackgroundRes(position) != 0)
-            return mContext.getResources().getDrawable(getBackgroundRes(position));
-        else if (mChipBackgroundRes != 0) {
-            return mContext.getResources().getDrawable(mChipBackgroundRes);
+        mAllocatedDrawableCount++;
+        int backgroundRes = resolveBackgroundRes(position);
+
+        if (backgroundRes != 0)
+            return mBackgroundCache.getDrawable(mContext.getResources(), backgroundRes);
+
+        return mBackgroundCache.getSelector(resolveBackgroundColor(position), resolveBackgroundColorSelected(position), mChipCornerRadius);
+    }
+
+    int getInflatedViewCount() {
+        return mInflatedViewCount;
+    }
+
+    int getAllocatedDrawableCount() {
+        return mAllocatedDrawableCount;
+    }
+
+    /**
+     * Return the background res of the Chip at position, 0 if it uses the background colors
+     */
+    int resolveBackgroundRes(int position) {
+        return (getBackgroundRes(position) != 0 ? getBackgroundRes(position) : mChipBackgroundRes);
+    }
+
+    int resolveBackgroundColor(int position) {
+        return (getBackgroundColor(position) != 0 ? getBackgroundColor(position) : mChipBackgroundColor);
+    }
+
+    int resolveBackgroundColorSelected(int position) {
+        return (getBackgroundColorSelected(position) != 0 ? getBackgroundColorSelected(position) : mChipBackgroundColorSelected);
+    }
+
+    /**
+     * Notify that the whole Chip list changed, every Chip will be rebuilt
+     */
+    public void notifyDataSetChanged() {
+        mChipIndex = null;
+        notifyUpdate(Change.FULL, 0, 0, 0);
+    }
+
+    /**
+     * Notify that a Chip has been inserted at position
+     *
+     * @param position
+     */
+    public void notifyChipInserted(int position) {
+        notifyChipRangeInserted(position, 1);
+    }
+
+    /**
+     * Notify that itemCount Chip have been inserted starting at positionStart
+     *
+     * @param positionStart
+     * @param itemCount
+     */
+    public void notifyChipRangeInserted(int positionStart, int itemCount) {
+        mChipIndex = null;
+        notifyUpdate(Change.INSERTED, positionStart, itemCount, 0);
+    }
+
+    /**
+     * Notify that the Chip at position has been removed
+     *
+     * @param position
+     */
+    public void notifyChipRemoved(int position) {
+        notifyChipRangeRemoved(position, 1);
+    }
+
+    /**
+     * Notify that itemCount Chip have been removed starting at positionStart
+     *
+     * @param positionStart
+     * @param itemCount
+     */
+    public void notifyChipRangeRemoved(int positionStart, int itemCount) {
+        mChipIndex = null;
+        notifyUpdate(Change.REMOVED, positionStart, itemCount, 0);
+    }
+
+    /**
+     * Notify that the Chip at position has changed and must be rebuilt
+     *
+     * @param position
+     */
+    public void notifyChipChanged(int position) {
+        notifyChipRangeChanged(position, 1);
+    }
+
+    /**
+     * Notify that itemCount Chip starting at positionStart have changed and must be rebuilt
+     *
+     * @param positionStart
+     * @param itemCount
+     */
+    public void notifyChipRangeChanged(int positionStart, int itemCount) {
+        notifyChipRangeChanged(positionStart, itemCount, null);
+    }
+
+    /**
+     * Notify that the Chip at position has changed, the payload is given back to bindView(View, int, List)
+     * so only what changed is bound again, PAYLOAD_TEXT for the text only, PAYLOAD_BACKGROUND for the background only
+     *
+     * @param position
+     * @param payload
+     */
+    public void notifyChipChanged(int position, Object payload) {
+        notifyChipRangeChanged(position, 1, payload);
+    }
+
+    /**
+     * Notify that itemCount Chip starting at positionStart have changed, with a payload for a partial bind
+     * Without stable ids the Chip key index is rebuilt on its next use, the Chip may have been replaced
+     *
+     * @param positionStart
+     * @param itemCount
+     * @param payload
+     */
+    public void notifyChipRangeChanged(int positionStart, int itemCount, Object payload) {
+        // A Chip identified by its id keeps its key when it changes, otherwise it may have been replaced
+        if (!mHasStableIds)
+            mChipIndex = null;
+
+        notifyUpdate(Change.CHANGED, positionStart, itemCount, 0, payload);
+    }
+
+    /**
+     * Notify that the Chip at fromPosition has been moved to toPosition
+     *
+     * @param fromPosition
+     * @param toPosition
+     */
+    public void notifyChipMoved(int fromPosition, int toPosition) {
+        notifyUpdate(Change.MOVED, fromPosition, 1, toPosition);
+    }
+
+    private void notifyUpdate(int type, int positionStart, int itemCount, int toPosition) {
+        notifyUpdate(type, positionStart, itemCount, toPosition, null);
+    }
+
+    private void notifyUpdate(int type, int positionStart, int itemCount, int toPosition, Object payload) {
+        if (mBatchDepth > 0) {
+            if (type == Change.FULL || mPendingChanges.size() >= MAX_BATCH_CHANGES) {
+                mPendingFullChange = true;
+                mPendingChanges.clear();
+            } else if (!mPendingFullChange) {
+                Change change = new Change(type, positionStart, itemCount, toPosition, payload);
+
+                if (!mergeLastPendingChange(change))
+                    mPendingChanges.add(change);
+            }
+
+            return;
         }
 
-        int backgroundColor = (getBackgroundColor(position) != 0 ? getBackgroundColor(position) : mChipBackgroundColor);
-        int backgroundColorSelected = (getBackgroundColorSelected(position) != 0 ? getBackgroundColorSelected(position) : mChipBackgroundColorSelected);
+        dispatchUpdate(type, positionStart, itemCount, toPosition, payload);
+    }
 
-        // Default state
-        GradientDrawable background = new GradientDrawable();
-        background.setShape(GradientDrawable.RECTANGLE);
-        background.setCornerRadius(mChipCornerRadius);
-        background.setColor(backgroundColor);
+    /**
+     * Call every observer, from the last registered so one can unregister while being notified
+     */
+    private void dispatchUpdate(int type, int positionStart, int itemCount, int toPosition, Object payload) {
+        for (int i = mObservers.size() - 1; i >= 0; i--) {
+            Observer observer = mObservers.get(i);
+
+            switch (type) {
+                case Change.FULL:
+                    observer.onChanged();
+                    break;
+
+                case Change.INSERTED:
+                    observer.onChipRangeInserted(positionStart, itemCount);
+                    break;
+
+                case Change.REMOVED:
+                    observer.onChipRangeRemoved(positionStart, itemCount);
+                    break;
+
+                case Change.CHANGED:
+                    observer.onChipRangeChanged(positionStart, itemCount, payload);
+                    break;
+
+                case Change.MOVED:
+                    observer.onChipMoved(positionStart, toPosition);
+                    break;
+            }
+        }
+    }
 
-        // Selected state
-        GradientDrawable selectedBackground = new GradientDrawable();
-        selectedBackground.setShape(GradientDrawable.RECTANGLE);
-        selectedBackground.setCornerRadius(mChipCornerRadius);
-        selectedBackground.setColor(backgroundColorSelected);
+    private void notifyStyleChanged(int changes) {
+        if (mHeightPredictor != null)
+            mHeightPredictor.invalidate();
 
-        StateListDrawable stateListDrawable = new StateListDrawable();
-        stateListDrawable.addState(new int[]{android.R.attr.state_pressed}, selectedBackground);
-        stateListDrawable.addState(new int[]{android.R.attr.state_focused}, selectedBackground);
-        stateListDrawable.addState(StateSet.WILD_CARD, background);
+        if (mStyleEditDepth > 0) {
+            mPendingStyleChanges |= changes;
+            return;
+        }
 
-        return stateListDrawable;
+        for (int i = mObservers.size() - 1; i >= 0; i--)
+            mObservers.get(i).onStyleChanged(changes);
     }
 
-    private void notifyUpdate() {
-        setChanged();
-        notifyObservers();
+    /**
+     * Start a style edit, the setters called until the matching applyStyleEdit are applied at once
+     * Style edits can be nested, only the outermost applyStyleEdit applies them
+     */
+    public void beginStyleEdit() {
+        mStyleEditDepth++;
+    }
+
+    /**
+     * End a style edit started with beginStyleEdit and apply every style change made in it
+     */
+    public void applyStyleEdit() {
+        if (mStyleEditDepth == 0)
+            throw new IllegalStateException("applyStyleEdit called without beginStyleEdit");
+
+        if (--mStyleEditDepth > 0 || mPendingStyleChanges == 0)
+            return;
+
+        int changes = mPendingStyleChanges;
+        mPendingStyleChanges = 0;
+        notifyStyleChanged(changes);
+    }
+
+    /**
+     * Register an observer notified of every Chip change, an adapter can drive several ChipView
+     *
+     * @param observer
+     */
+    public void registerObserver(Observer observer) {
+        if (mObservers.contains(observer))
+            throw new IllegalStateException("Observer " + observer + " is already registered");
+
+        mObservers.add(observer);
+    }
+
+    public void unregisterObserver(Observer observer) {
+        mObservers.remove(observer);
+    }
+
+    /**
+     * Merge a change into the last pending one when both describe a single contiguous range
+     *
+     * @param change
+     * @return boolean true if merged
+     */
+    private boolean mergeLastPendingChange(Change change) {
+        if (mPendingChanges.isEmpty())
+            return false;
+
+        int lastIndex = mPendingChanges.size() - 1;
+        Change last = mPendingChanges.get(lastIndex);
+        int lastEnd = last.positionStart + last.itemCount;
+        int end = change.positionStart + change.itemCount;
+        Change merged = null;
+
+        if (last.type != change.type)
+            return false;
+
+        switch (change.type) {
+            case Change.INSERTED:
+                if (change.positionStart >= last.positionStart && change.positionStart <= lastEnd)
+                    merged = new Change(Change.INSERTED, last.positionStart, last.itemCount + change.itemCount, 0, null);
+                break;
+
+            case Change.REMOVED:
+                if (last.positionStart >= change.positionStart && last.positionStart <= end)
+                    merged = new Change(Change.REMOVED, change.positionStart, last.itemCount + change.itemCount, 0, null);
+                break;
+
+            case Change.CHANGED:
+                // Only the same payload can be merged, a Chip would get the payload of its neighbour otherwise
+                if (change.payload == last.payload && change.positionStart <= lastEnd && end >= last.positionStart) {
+                    int start = Math.min(last.positionStart, change.positionStart);
+                    merged = new Change(Change.CHANGED, start, Math.max(lastEnd, end) - start, 0, change.payload);
+                }
+                break;
+        }
+
+        if (merged != null)
+            mPendingChanges.set(lastIndex, merged);
+
+        return (merged != null);
+    }
+
+    /**
+     * Start a batch, every change until the matching endBatch is sent at once
+     * Batches can be nested
+     */
+    public void beginBatch() {
+        mBatchDepth++;
+    }
+
+    /**
+     * End a batch and send its changes, contiguous ones are merged
+     */
+    public void endBatch() {
+        if (mBatchDepth == 0)
+            throw new IllegalStateException("endBatch called without beginBatch");
+
+        if (--mBatchDepth > 0)
+            return;
+
+        boolean fullChange = mPendingFullChange;
+        mPendingFullChange = false;
+
+        if (fullChange)
+            dispatchUpdate(Change.FULL, 0, 0, 0, null);
+        else {
+            for (int i = 0; i < mPendingChanges.size(); i++) {
+                Change change = mPendingChanges.get(i);
+                dispatchUpdate(change.type, change.positionStart, change.itemCount, change.toPosition, change.payload);
+            }
+        }
+
+        mPendingChanges.clear();
+    }
+
+    public boolean isInBatch() {
+        return (mBatchDepth > 0);
     }
 
     public Chip getChip(int position) {
-        return (position < count() ? mChipList.get(position) : null);
+        return (position >= 0 && position < count() ? mChipList.get(position) : null);
     }
 
     /**
@@ -239,20 +840,236 @@ public abstract class ChipViewAdapter extends Observable {
      * @param chip
      */
     public void add(Chip chip) {
-        if (!mChipList.contains(chip) || mToleratingDuplicate) {
+        Object key = getChipKey(chip);
+        HashMap<Object, Integer> chipIndex = getChipIndex();
+
+        if (mToleratingDuplicate || !chipIndex.containsKey(key)) {
             mChipList.add(chip);
-            notifyUpdate();
+            mModificationCount++;
+            indexChip(chipIndex, key);
+            notifyUpdate(Change.INSERTED, mChipList.size() - 1, 1, 0);
         }
     }
 
     /**
      * Wrapper to remove a Chip
+     * An absent Chip is rejected in constant time, a present one is looked up with an O(n) scan
+     * calling getChipKey on each Chip before it, keep getChipKey cheap for large lists
      *
      * @param chip
      */
     public void remove(Chip chip) {
-        mChipList.remove(chip);
-        notifyUpdate();
+        Object key = getChipKey(chip);
+
+        // Absent Chip are rejected by the index without scanning the list
+        if (!getChipIndex().containsKey(key))
+            return;
+
+        int position = indexOfKey(key);
+
+        if (position >= 0) {
+            mChipList.remove(position);
+            mModificationCount++;
+            unindexChip(mChipIndex, key);
+            notifyUpdate(Change.REMOVED, position, 1, 0);
+        }
+    }
+
+    /**
+     * Add several Chip with a single notification
+     *
+     * @param chipList
+     */
+    public void addAll(Collection<? extends Chip> chipList) {
+        HashMap<Object, Integer> chipIndex = getChipIndex();
+        int positionStart = mChipList.size();
+
+        for (Chip chip : chipList) {
+            Object key = getChipKey(chip);
+
+            if (mToleratingDuplicate || !chipIndex.containsKey(key)) {
+                mChipList.add(chip);
+                indexChip(chipIndex, key);
+            }
+        }
+
+        if (mChipList.size() > positionStart) {
+            mModificationCount++;
+            notifyUpdate(Change.INSERTED, positionStart, mChipList.size() - positionStart, 0);
+        }
+    }
+
+    /**
+     * Remove every Chip sharing a key with the given ones, with a single notification
+     *
+     * @param chipList
+     */
+    public void removeAll(Collection<? extends Chip> chipList) {
+        final HashSet<Object> keys = new HashSet<>(Math.max(16, chipList.size() * 2));
+
+        for (Chip chip : chipList)
+            keys.add(getChipKey(chip));
+
+        removeIf(new ChipPredicate() {
+            @Override
+            public boolean apply(Chip chip) {
+                return keys.contains(getChipKey(chip));
+            }
+        });
+    }
+
+    /**
+     * Remove every Chip matching the predicate in one pass, with a single notification
+     *
+     * @param predicate
+     */
+    public void removeIf(ChipPredicate predicate) {
+        HashMap<Object, Integer> chipIndex = getChipIndex();
+        int size = mChipList.size();
+        int[] removedRanges = null;
+        int rangeCount = 0;
+        int kept = 0;
+
+        for (int i = 0; i < size; i++) {
+            Chip chip = mChipList.get(i);
+
+            if (!predicate.apply(chip)) {
+                if (kept != i)
+                    mChipList.set(kept, chip);
+
+                kept++;
+                continue;
+            }
+
+            unindexChip(chipIndex, getChipKey(chip));
+
+            // Consecutive removed Chip extend the current range
+            if (rangeCount > 0 && removedRanges[2 * rangeCount - 2] + removedRanges[2 * rangeCount - 1] == i)
+                removedRanges[2 * rangeCount - 1]++;
+            else {
+                if (removedRanges == null)
+                    removedRanges = new int[8];
+                else if (2 * rangeCount + 2 > removedRanges.length)
+                    removedRanges = Arrays.copyOf(removedRanges, removedRanges.length * 2);
+
+                removedRanges[2 * rangeCount] = i;
+                removedRanges[2 * rangeCount + 1] = 1;
+                rangeCount++;
+            }
+        }
+
+        if (rangeCount == 0)
+            return;
+
+        mChipList.subList(kept, size).clear();
+        mModificationCount++;
+
+        // From the end so each range is still valid when dispatched
+        beginBatch();
+
+        for (int i = rangeCount - 1; i >= 0; i--)
+            notifyUpdate(Change.REMOVED, removedRanges[2 * i], removedRanges[2 * i + 1], 0);
+
+        endBatch();
+    }
+
+    /**
+     * Replace a Chip in place, only its view is rebuilt
+     * Like remove, finding the position of oldChip is an O(n) scan calling getChipKey
+     *
+     * @param oldChip
+     * @param newChip
+     * @return boolean true if replaced
+     */
+    public boolean replace(Chip oldChip, Chip newChip) {
+        Object oldKey = getChipKey(oldChip);
+        Object newKey = getChipKey(newChip);
+        HashMap<Object, Integer> chipIndex = getChipIndex();
+
+        if (!chipIndex.containsKey(oldKey) || (!mToleratingDuplicate && !oldKey.equals(newKey) && chipIndex.containsKey(newKey)))
+            return false;
+
+        int position = indexOfKey(oldKey);
+        mChipList.set(position, newChip);
+        unindexChip(chipIndex, oldKey);
+        indexChip(chipIndex, newKey);
+        mModificationCount++;
+        notifyUpdate(Change.CHANGED, position, 1, 0);
+
+        return true;
+    }
+
+    /**
+     * Whether or not a Chip with the same key is in the list
+     *
+     * @param chip
+     * @return boolean
+     */
+    public boolean contains(Chip chip) {
+        return getChipIndex().containsKey(getChipKey(chip));
+    }
+
+    /**
+     * Whether or not a Chip with this key is in the list
+     *
+     * @param key
+     * @return boolean
+     */
+    boolean containsKey(Object key) {
+        return getChipIndex().containsKey(key);
+    }
+
+    private int indexOfKey(Object key) {
+        for (int i = 0; i < mChipList.size(); i++) {
+            if (key.equals(getChipKey(mChipList.get(i))))
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Drop the Chip key index used by add, remove, replace and contains, it's rebuilt on its next use
+     * Call it when the Chip list, or a Chip key, changed without any notify, or when getChipKey
+     * starts returning other keys, insert / remove / full notifications already do it
+     */
+    public void invalidateChipIndex() {
+        mChipIndex = null;
+    }
+
+    /**
+     * Return the Chip key multiset, rebuilt if a notify or invalidateChipIndex dropped it
+     *
+     * @return HashMap
+     */
+    private HashMap<Object, Integer> getChipIndex() {
+        if (mChipIndex == null)
+            mChipIndex = buildChipIndex(mChipList);
+
+        return mChipIndex;
+    }
+
+    private HashMap<Object, Integer> buildChipIndex(List<Chip> chipList) {
+        HashMap<Object, Integer> chipIndex = new HashMap<>(Math.max(16, chipList.size() * 2));
+
+        for (int i = 0; i < chipList.size(); i++)
+            indexChip(chipIndex, getChipKey(chipList.get(i)));
+
+        return chipIndex;
+    }
+
+    private static void indexChip(HashMap<Object, Integer> chipIndex, Object key) {
+        Integer count = chipIndex.get(key);
+        chipIndex.put(key, (count != null ? count + 1 : 1));
+    }
+
+    private static void unindexChip(HashMap<Object, Integer> chipIndex, Object key) {
+        Integer count = chipIndex.get(key);
+
+        if (count == null || count <= 1)
+            chipIndex.remove(key);
+        else
+            chipIndex.put(key, count - 1);
     }
 
     /**
@@ -279,6 +1096,8 @@ public abstract class ChipViewAdapter extends Observable {
     public void setAttributeSet(AttributeSet attributeSet) {
         mAttributeSet = attributeSet;
         init();
+        invalidateTextWidths();
+        notifyStyleChanged(STYLE_SPACING | STYLE_PADDING | STYLE_TEXT | STYLE_BACKGROUND);
     }
 
     public List<Chip> getChipList() {
@@ -286,8 +1105,348 @@ public abstract class ChipViewAdapter extends Observable {
     }
 
     public void setChipList(List<Chip> chipList) {
+        mSubmitGeneration++;
+        mModificationCount++;
         mChipList = chipList;
-        notifyUpdate();
+        mChipIndex = buildChipIndex(chipList);
+        notifyUpdate(Change.FULL, 0, 0, 0);
+
+        if (mPrecomputeTextEnabled && needsTextWidths())
+            precomputeTextWidths(chipList);
+    }
+
+    /**
+     * Replace the Chip list, the difference with the current one is computed on the diff executor
+     * and only the resulting insert / remove / move / change notifications are sent on the main thread
+     * A newer submitList or setChipList cancels the pending one
+     * The submitted list must not be modified afterwards
+     *
+     * @param chipList
+     */
+    public void submitList(final List<Chip> chipList) {
+        final int generation = ++mSubmitGeneration;
+        final int modificationCount = mModificationCount;
+        final List<Chip> oldList = new ArrayList<>(mChipList);
+        final SparseArray<TextPaint> textPaints = (mPrecomputeTextEnabled && needsTextWidths() ? copyTextPaints() : null);
+        final int textGeneration = mTextGeneration;
+
+        getDiffExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mSubmitGeneration)
+                    return;
+
+                final ChipDiff.Result result = ChipDiff.calculate(oldList, chipList, mDiffCallback);
+                final HashMap<Object, Integer> chipIndex = buildChipIndex(chipList);
+                final SparseArray<HashMap<String, Float>> textWidths = (textPaints != null ? measureTextWidths(chipList, textPaints) : null);
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mSubmitGeneration)
+                            return;
+
+                        boolean modified = (modificationCount != mModificationCount);
+                        mModificationCount++;
+                        mChipList = chipList;
+                        mChipIndex = chipIndex;
+
+                        if (textWidths != null && textGeneration == mTextGeneration)
+                            mTextWidths = textWidths;
+
+                        // The list changed while diffing, the result doesn't apply anymore
+                        if (modified)
+                            notifyUpdate(Change.FULL, 0, 0, 0);
+                        else
+                            result.dispatchTo(mDiffUpdateCallback);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Measure the Chip texts of this list on the diff executor, the virtualized, maxLines and draw modes
+     * then size the Chip without measuring any text on the main thread
+     *
+     * @param chipList
+     */
+    private void precomputeTextWidths(final List<Chip> chipList) {
+        final List<Chip> chips = new ArrayList<>(chipList);
+        final SparseArray<TextPaint> textPaints = copyTextPaints();
+        final int generation = mSubmitGeneration;
+        final int textGeneration = mTextGeneration;
+        mTextWidthsRequest = generation;
+
+        getDiffExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mSubmitGeneration)
+                    return;
+
+                final SparseArray<HashMap<String, Float>> textWidths = measureTextWidths(chips, textPaints);
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mSubmitGeneration && textGeneration == mTextGeneration)
+                            mTextWidths = textWidths;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Whether or not a ChipView or the height predictor sizes Chip from text metrics,
+     * the only users of the precomputed widths
+     *
+     * @return boolean
+     */
+    private boolean needsTextWidths() {
+        if (mHeightPredictor != null)
+            return true;
+
+        for (int i = 0; i < mObservers.size(); i++) {
+            if (mObservers.get(i).usesTextWidths())
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Called when Chip start being sized from text metrics, measure the current list if it hasn't been
+     */
+    void onTextWidthsNeeded() {
+        // Already measured, or being measured, for this list and style
+        if (mPrecomputeTextEnabled && mTextWidths == null && mTextWidthsRequest != mSubmitGeneration && !mChipList.isEmpty())
+            precomputeTextWidths(mChipList);
+    }
+
+    /**
+     * Copy the text paint of every known layout type, and of every type of the current list, for another thread
+     *
+     * @return SparseArray
+     */
+    private SparseArray<TextPaint> copyTextPaints() {
+        getTextPaint(getChipLayoutRes());
+
+        for (int i = 0; i < mChipList.size(); i++)
+            getTextPaint(getViewType(i));
+
+        SparseArray<TextPaint> textPaints = new SparseArray<>();
+
+        for (int i = 0; i < mTextPaints.size(); i++) {
+            if (mTextPaints.valueAt(i) != null)
+                textPaints.put(mTextPaints.keyAt(i), new TextPaint(mTextPaints.valueAt(i)));
+        }
+
+        return textPaints;
+    }
+
+    /**
+     * Return the paint of a styled view of this layout type, null if it has no text
+     */
+    private TextPaint getTextPaint(int viewType) {
+        if (mTextPaints.indexOfKey(viewType) < 0) {
+            if (mMeasureParent == null)
+                mMeasureParent = new FrameLayout(mContext);
+
+            View view = createView(mMeasureParent, viewType);
+            ChipViewHolder holder = ChipViewHolder.from(view);
+            bindStyle(view, holder);
+            mTextPaints.put(viewType, (holder.text != null ? new TextPaint(holder.text.getPaint()) : null));
+        }
+
+        return mTextPaints.get(viewType);
+    }
+
+    private static SparseArray<HashMap<String, Float>> measureTextWidths(List<Chip> chipList, SparseArray<TextPaint> textPaints) {
+        SparseArray<HashMap<String, Float>> textWidths = new SparseArray<>();
+
+        for (int i = 0; i < textPaints.size(); i++) {
+            TextPaint paint = textPaints.valueAt(i);
+            HashMap<String, Float> widths = new HashMap<>();
+
+            for (Chip chip : chipList) {
+                CharSequence text = chip.getText();
+
+                if (text != null && !widths.containsKey(text.toString()))
+                    widths.put(text.toString(), Layout.getDesiredWidth(text, paint));
+            }
+
+            textWidths.put(textPaints.keyAt(i), widths);
+        }
+
+        return textWidths;
+    }
+
+    /**
+     * Return the width of a Chip text measured off the main thread
+     *
+     * @param viewType
+     * @param text
+     * @return float or -1 if it hasn't been precomputed
+     */
+    float getPrecomputedTextWidth(int viewType, CharSequence text) {
+        HashMap<String, Float> widths = (mTextWidths != null ? mTextWidths.get(viewType) : null);
+        Float width = (widths != null && text != null ? widths.get(text.toString()) : null);
+
+        return (width != null ? width : -1);
+    }
+
+    private void invalidateTextWidths() {
+        mTextGeneration++;
+        mTextWidthsRequest = -1;
+        mTextPaints.clear();
+        mTextWidths = null;
+    }
+
+    public boolean isPrecomputeTextEnabled() {
+        return mPrecomputeTextEnabled;
+    }
+
+    /**
+     * Measure the Chip texts on the diff executor when a list is given by setChipList or submitList
+     * Only the virtualized, maxLines and draw modes, and ChipView#predictHeight, use these widths :
+     * while every ChipView of this adapter is in the default mode, which measures its bound views,
+     * nothing is measured and this setting has no effect
+     *
+     * @param precomputeTextEnabled
+     */
+    public void setPrecomputeTextEnabled(boolean precomputeTextEnabled) {
+        mPrecomputeTextEnabled = precomputeTextEnabled;
+
+        if (!precomputeTextEnabled) {
+            // Drop the widths being measured too
+            mTextGeneration++;
+            mTextWidthsRequest = -1;
+            mTextWidths = null;
+        } else if (needsTextWidths()) {
+            onTextWidthsNeeded();
+        }
+    }
+
+    /**
+     * Return the key identifying a Chip, the Chip itself by default (equals and hashCode)
+     * Used for duplicate detection and to match Chip between two lists, override it to use an id or the text
+     * Called from the diff executor thread too
+     *
+     * @param chip
+     * @return Object
+     */
+    public Object getChipKey(Chip chip) {
+        if (mHasStableIds) {
+            long chipId = getChipId(chip);
+
+            if (chipId != NO_ID)
+                return chipId;
+        }
+
+        return chip;
+    }
+
+    /**
+     * Return the id of a Chip, StableIdChip#getId by default
+     * Override it if your Chip get their id elsewhere
+     * Called from the diff executor thread too
+     *
+     * @param chip
+     * @return long or NO_ID
+     */
+    public long getChipId(Chip chip) {
+        return (chip instanceof StableIdChip ? ((StableIdChip) chip).getId() : NO_ID);
+    }
+
+    /**
+     * Whether or not two Chip with the same key display the same content, compare the text by default
+     * Called from the diff executor thread
+     *
+     * @param oldChip
+     * @param newChip
+     * @return boolean
+     */
+    public boolean areContentsTheSame(Chip oldChip, Chip newChip) {
+        return TextUtils.equals(oldChip.getText(), newChip.getText());
+    }
+
+    /**
+     * Return what changed between two Chip with the same key whose contents differ, given to bindView(View, int, List)
+     * Override it with areContentsTheSame, e.g. PAYLOAD_BACKGROUND when only the background colors differ
+     * Called from the diff executor thread
+     *
+     * @param oldChip
+     * @param newChip
+     * @return Object or null for a full bind
+     */
+    public Object getChangePayload(Chip oldChip, Chip newChip) {
+        return null;
+    }
+
+    public Executor getDiffExecutor() {
+        if (mDiffExecutor == null) {
+            if (sDiffExecutor == null) {
+                sDiffExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "ChipViewAdapter diff");
+                        thread.setDaemon(true);
+
+                        return thread;
+                    }
+                });
+            }
+
+            mDiffExecutor = sDiffExecutor;
+        }
+
+        return mDiffExecutor;
+    }
+
+    /**
+     * Set the executor computing submitList differences, a shared background thread is used otherwise
+     *
+     * @param diffExecutor
+     */
+    public void setDiffExecutor(Executor diffExecutor) {
+        mDiffExecutor = diffExecutor;
+    }
+
+    /**
+     * Return a new LayoutInflater for the adapter Context, to inflate Chip views on another thread
+     *
+     * @return LayoutInflater
+     */
+    LayoutInflater cloneInflater() {
+        return mInflater.cloneInContext(mContext);
+    }
+
+    /**
+     * Return the height predictor of this adapter style, see ChipView#predictHeight
+     *
+     * @return ChipHeightPredictor
+     */
+    ChipHeightPredictor getHeightPredictor() {
+        if (mHeightPredictor == null) {
+            mHeightPredictor = new ChipHeightPredictor(this);
+            onTextWidthsNeeded();
+        }
+
+        return mHeightPredictor;
+    }
+
+    public ChipBackgroundCache getBackgroundCache() {
+        return mBackgroundCache;
+    }
+
+    /**
+     * Set the cache used to build Chip backgrounds, the shared default one is used otherwise
+     *
+     * @param backgroundCache
+     */
+    public void setBackgroundCache(ChipBackgroundCache backgroundCache) {
+        mBackgroundCache = backgroundCache;
     }
 
     public boolean isToleratingDuplicate() {
@@ -303,12 +1462,39 @@ public abstract class ChipViewAdapter extends Observable {
         mToleratingDuplicate = toleratingDuplicate;
     }
 
+    public boolean hasStableIds() {
+        return mHasStableIds;
+    }
+
+    /**
+     * Set whether or not Chip are identified by getChipId
+     * Duplicate detection, remove, replace and submitList then match Chip by id,
+     * and a Chip bound again with the same id and text keeps its view measure
+     * Set it before giving the adapter to a ChipRecyclerAdapter
+     *
+     * @param hasStableIds
+     */
+    public void setHasStableIds(boolean hasStableIds) {
+        if (mHasStableIds != hasStableIds) {
+            mHasStableIds = hasStableIds;
+            mChipIndex = null;
+        }
+    }
+
     public boolean hasBackground() {
         return mHasBackground;
     }
 
+    /**
+     * Turning the background off rebuilds the Chip views, so layouts get their own background back
+     *
+     * @param hasBackground
+     */
     public void setHasBackground(boolean hasBackground) {
-        mHasBackground = hasBackground;
+        if (mHasBackground != hasBackground) {
+            mHasBackground = hasBackground;
+            notifyStyleChanged(hasBackground ? STYLE_BACKGROUND : STYLE_LAYOUT);
+        }
     }
 
     public int getChipSpacing() {
@@ -316,7 +1502,10 @@ public abstract class ChipViewAdapter extends Observable {
     }
 
     public void setChipSpacing(int chipSpacing) {
-        mChipSpacing = chipSpacing;
+        if (mChipSpacing != chipSpacing) {
+            mChipSpacing = chipSpacing;
+            notifyStyleChanged(STYLE_SPACING);
+        }
     }
 
     public int getLineSpacing() {
@@ -324,7 +1513,10 @@ public abstract class ChipViewAdapter extends Observable {
     }
 
     public void setLineSpacing(int lineSpacing) {
-        mLineSpacing = lineSpacing;
+        if (mLineSpacing != lineSpacing) {
+            mLineSpacing = lineSpacing;
+            notifyStyleChanged(STYLE_SPACING);
+        }
     }
 
     public int getChipPadding() {
@@ -332,7 +1524,10 @@ public abstract class ChipViewAdapter extends Observable {
     }
 
     public void setChipPadding(int chipPadding) {
-        mChipPadding = chipPadding;
+        if (mChipPadding != chipPadding) {
+            mChipPadding = chipPadding;
+            notifyStyleChanged(STYLE_PADDING);
+        }
     }
 
     public int getChipSidePadding() {
@@ -340,7 +1535,10 @@ public abstract class ChipViewAdapter extends Observable {
     }
 
     public void setChipSidePadding(int chipSidePadding) {
-        mChipSidePadding = chipSidePadding;
+        if (mChipSidePadding != chipSidePadding) {
+            mChipSidePadding = chipSidePadding;
+            notifyStyleChanged(STYLE_PADDING);
+        }
     }
 
     public int getChipCornerRadius() {
@@ -348,7 +1546,10 @@ public abstract class ChipViewAdapter extends Observable {
     }
 
     public void setChipCornerRadius(int chipCornerRadius) {
-        mChipCornerRadius = chipCornerRadius;
+        if (mChipCornerRadius != chipCornerRadius) {
+            mChipCornerRadius = chipCornerRadius;
+            notifyStyleChanged(STYLE_BACKGROUND);
+        }
     }
 
     public int getChipBackgroundColor() {
@@ -356,7 +1557,10 @@ public abstract class ChipViewAdapter extends Observable {
     }
 
     public void setChipBackgroundColor(@ColorInt int chipBackgroundColor) {
-        mChipBackgroundColor = chipBackgroundColor;
+        if (mChipBackgroundColor != chipBackgroundColor) {
+            mChipBackgroundColor = chipBackgroundColor;
+            notifyStyleChanged(STYLE_BACKGROUND);
+        }
     }
 
     public int getChipBackgroundColorSelected() {
@@ -364,7 +1568,10 @@ public abstract class ChipViewAdapter extends Observable {
     }
 
     public void setChipBackgroundColorSelected(@ColorInt int chipBackgroundColorSelected) {
-        mChipBackgroundColorSelected = chipBackgroundColorSelected;
+        if (mChipBackgroundColorSelected != chipBackgroundColorSelected) {
+            mChipBackgroundColorSelected = chipBackgroundColorSelected;
+            notifyStyleChanged(STYLE_BACKGROUND);
+        }
     }
 
     public int getChipTextSize() {
@@ -372,7 +1579,11 @@ public abstract class ChipViewAdapter extends Observable {
     }
 
     public void setChipTextSize(int chipTextSize) {
-        mChipTextSize = chipTextSize;
+        if (mChipTextSize != chipTextSize) {
+            mChipTextSize = chipTextSize;
+            invalidateTextWidths();
+            notifyStyleChanged(STYLE_TEXT);
+        }
     }
 
     /**
@@ -382,7 +1593,10 @@ public abstract class ChipViewAdapter extends Observable {
      * @param backgroundRes
      */
     public void setChipBackgroundRes(@DrawableRes int backgroundRes) {
-        mChipBackgroundRes = backgroundRes;
+        if (mChipBackgroundRes != backgroundRes) {
+            mChipBackgroundRes = backgroundRes;
+            notifyStyleChanged(STYLE_BACKGROUND);
+        }
     }
 
     public int getChipLayoutRes() {
@@ -394,6 +1608,88 @@ public abstract class ChipViewAdapter extends Observable {
      * Can be fine tuned by overriding @see com.scanners.android.bao.view.ChipTextView.Chip#getLayoutRes
      */
     public void setChipLayoutRes(@LayoutRes int chipRes) {
-        mChipRes = chipRes;
+        if (mChipRes != chipRes) {
+            mChipRes = chipRes;
+            invalidateTextWidths();
+            notifyStyleChanged(STYLE_LAYOUT);
+        }
+    }
+
+    /**
+     * Condition used by removeIf
+     */
+    public interface ChipPredicate {
+        boolean apply(Chip chip);
+    }
+
+    /**
+     * Receive the Chip changes of an adapter, positions are valid at the time each callback is made
+     */
+    public static abstract class Observer {
+        /**
+         * The whole Chip list changed
+         */
+        public void onChanged() {
+        }
+
+        public void onChipRangeInserted(int positionStart, int itemCount) {
+        }
+
+        public void onChipRangeRemoved(int positionStart, int itemCount) {
+        }
+
+        public void onChipRangeChanged(int positionStart, int itemCount) {
+        }
+
+        /**
+         * Chip changed with a payload, null for a full bind, calls onChipRangeChanged(int, int) by default
+         */
+        public void onChipRangeChanged(int positionStart, int itemCount, Object payload) {
+            onChipRangeChanged(positionStart, itemCount);
+        }
+
+        public void onChipMoved(int fromPosition, int toPosition) {
+        }
+
+        /**
+         * The Chip style changed, calls onChanged by default
+         *
+         * @param changes STYLE_* flags
+         */
+        public void onStyleChanged(int changes) {
+            onChanged();
+        }
+
+        /**
+         * Whether or not Chip are sized from text metrics, and so use the precomputed text widths
+         */
+        boolean usesTextWidths() {
+            return false;
+        }
+    }
+
+    /**
+     * Granular change kept while a batch is open
+     */
+    static final class Change {
+        static final int FULL = -1;
+        static final int INSERTED = 0;
+        static final int REMOVED = 1;
+        static final int CHANGED = 2;
+        static final int MOVED = 3;
+
+        final int type;
+        final int positionStart;
+        final int itemCount;
+        final int toPosition;
+        final Object payload;
+
+        Change(int type, int positionStart, int itemCount, int toPosition, Object payload) {
+            this.type = type;
+            this.positionStart = positionStart;
+            this.itemCount = itemCount;
+            this.toPosition = toPosition;
+            this.payload = payload;
+        }
     }
 }
@@ -0,0 +1,121 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.view.View;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the Chip view lookups so a recycled view only has to be bound
+ */
+class ChipViewHolder {
+    final int viewType;
+    final TextView text;
+    final View content;
+    final boolean fallbackRightMargin;
+    final boolean fallbackBottomMargin;
+    Chip chip;
+    long chipId = ChipViewAdapter.NO_ID;
+    boolean needsBind;
+
+    // Change payloads waiting for the next bind
+    private ArrayList<Object> mPayloads;
+    private boolean mNeedsFullBind;
+
+    // Measure cache
+    private Chip mMeasuredChip;
+    private long mMeasuredChipId = ChipViewAdapter.NO_ID;
+    private int mMeasuredWidthSpec;
+    private int mMeasuredHeightSpec;
+
+    ChipViewHolder(View view, int viewType, boolean fallbackRightMargin, boolean fallbackBottomMargin) {
+        this.viewType = viewType;
+        this.text = (TextView) view.findViewById(android.R.id.text1);
+        this.content = view.findViewById(android.R.id.content);
+        this.fallbackRightMargin = fallbackRightMargin;
+        this.fallbackBottomMargin = fallbackBottomMargin;
+    }
+
+    /**
+     * Whether or not the last measure was done for the same Chip (or Chip id) with the same parent specs
+     *
+     * @param widthMeasureSpec
+     * @param heightMeasureSpec
+     * @return boolean
+     */
+    boolean isMeasureValid(int widthMeasureSpec, int heightMeasureSpec) {
+        boolean sameChip = (mMeasuredChip == chip || (chipId != ChipViewAdapter.NO_ID && mMeasuredChipId == chipId));
+
+        return (mMeasuredChip != null && sameChip && mMeasuredWidthSpec == widthMeasureSpec && mMeasuredHeightSpec == heightMeasureSpec);
+    }
+
+    void onMeasured(int widthMeasureSpec, int heightMeasureSpec) {
+        mMeasuredChip = chip;
+        mMeasuredChipId = chipId;
+        mMeasuredWidthSpec = widthMeasureSpec;
+        mMeasuredHeightSpec = heightMeasureSpec;
+    }
+
+    void invalidateMeasure() {
+        mMeasuredChip = null;
+    }
+
+    /**
+     * Mark the view to be bound again, a null payload asks for a full bind
+     *
+     * @param payload
+     */
+    void addPayload(Object payload) {
+        needsBind = true;
+
+        if (payload == null)
+            mNeedsFullBind = true;
+        else if (!mNeedsFullBind) {
+            if (mPayloads == null)
+                mPayloads = new ArrayList<>();
+
+            mPayloads.add(payload);
+        }
+    }
+
+    /**
+     * Return the payloads to bind, empty if a full bind is needed
+     *
+     * @return List
+     */
+    List<Object> getPayloads() {
+        if (mNeedsFullBind || mPayloads == null)
+            return Collections.emptyList();
+
+        return mPayloads;
+    }
+
+    void clearPayloads() {
+        mNeedsFullBind = false;
+
+        if (mPayloads != null)
+            mPayloads.clear();
+    }
+
+    static ChipViewHolder from(View view) {
+        return (ChipViewHolder) view.getTag(R.id.chip_view_holder);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Receive the duration and the work of every ChipView pass, and why Chip are rebuilt
+ * Set it with ChipView#setMetrics, NONE by default : ChipView doesn't even read the clock then
+ * Callbacks are made on the main thread
+ */
+public abstract class ChipViewMetrics {
+    public static final int PASS_REFRESH = 0;
+    public static final int PASS_UPDATE = 1;
+    public static final int PASS_MEASURE = 2;
+    public static final int PASS_LAYOUT = 3;
+    public static final int PASS_SCROLL = 4;
+
+    /**
+     * ChipView#refresh called by the app
+     */
+    public static final int CAUSE_REQUESTED = 0;
+    /**
+     * A new adapter
+     */
+    public static final int CAUSE_ADAPTER = 1;
+    /**
+     * setChipList, notifyDataSetChanged, or a submitList whose list changed while diffing,
+     * the adapter sends the same notification for all of them
+     */
+    public static final int CAUSE_DATA_SET_CHANGED = 2;
+    /**
+     * Notifications of different kinds within a frame which couldn't be applied in place,
+     * a single kind is reported by CAUSE_INSERTED, CAUSE_REMOVED, CAUSE_CHANGED or CAUSE_MOVED
+     */
+    public static final int CAUSE_ADAPTER_CHANGES = 3;
+    /**
+     * Changes made while the ChipView was detached or hidden, which ones isn't known anymore
+     */
+    public static final int CAUSE_DEFERRED = 4;
+    /**
+     * Virtualized, line limit or draw mode switched
+     */
+    public static final int CAUSE_CONFIGURATION = 5;
+    /**
+     * A style change affecting the Chip layout, like the Chip layout res or the background switch
+     */
+    public static final int CAUSE_STYLE = 6;
+    /**
+     * More changes within a frame than ChipView keeps, whatever their kind
+     */
+    public static final int CAUSE_TOO_MANY_CHANGES = 7;
+    /**
+     * Only insertions (add, addAll, notifyChipRangeInserted...) which couldn't be applied in place
+     */
+    public static final int CAUSE_INSERTED = 8;
+    /**
+     * Only removals (remove, removeAll, notifyChipRangeRemoved...) which couldn't be applied in place
+     */
+    public static final int CAUSE_REMOVED = 9;
+    /**
+     * Only changes (replace, notifyChipRangeChanged...) which couldn't be applied in place
+     */
+    public static final int CAUSE_CHANGED = 10;
+    /**
+     * Only moves which couldn't be applied in place
+     */
+    public static final int CAUSE_MOVED = 11;
+
+    private static final String[] PASS_NAMES = {"refresh", "update", "measure", "layout", "scroll"};
+    private static final String[] CAUSE_NAMES = {"requested", "adapter", "data set changed", "adapter changes", "deferred", "configuration",
+            "style", "too many changes", "inserted", "removed", "changed", "moved"};
+
+    /**
+     * Does nothing
+     */
+    public static final ChipViewMetrics NONE = new ChipViewMetrics() {
+    };
+
+    /**
+     * Wrap every pass in a trace section, visible in Systrace and Perfetto
+     */
+    public static final ChipViewMetrics TRACE = new Tracing();
+
+    /**
+     * A pass starts
+     *
+     * @param chipView
+     * @param pass
+     */
+    public void onPassStart(ChipView chipView, int pass) {
+    }
+
+    /**
+     * A pass ended
+     *
+     * @param chipView
+     * @param pass
+     * @param durationNanos
+     * @param counts        the work done during the pass, reused : only valid during the call
+     */
+    public void onPassEnd(ChipView chipView, int pass, long durationNanos, Counts counts) {
+    }
+
+    /**
+     * Every Chip view is about to be rebuilt, or dropped to be bound again in virtualized and line limit modes
+     *
+     * @param chipView
+     * @param cause
+     */
+    public void onRebuild(ChipView chipView, int cause) {
+    }
+
+    public static String getPassName(int pass) {
+        return PASS_NAMES[pass];
+    }
+
+    public static String getCauseName(int cause) {
+        return CAUSE_NAMES[cause];
+    }
+
+    /**
+     * Work done during a pass
+     */
+    public static final class Counts {
+        /**
+         * Chip bound on a new view
+         */
+        public int viewsCreated;
+        /**
+         * Chip bound on a view taken from the pool
+         */
+        public int viewsReused;
+        /**
+         * New views inflated from a layout res
+         */
+        public int viewsInflated;
+        /**
+         * Chip views measured, the ones skipped by the measure cache aren't counted
+         */
+        public int viewsMeasured;
+        /**
+         * Background drawables given to Chip views
+         */
+        public int drawablesAllocated;
+        /**
+         * Lines computed by the line breaking
+         */
+        public int linesComputed;
+
+        void reset() {
+            viewsCreated = 0;
+            viewsReused = 0;
+            viewsInflated = 0;
+            viewsMeasured = 0;
+            drawablesAllocated = 0;
+            linesComputed = 0;
+        }
+    }
+
+    /**
+     * Trace sections named "ChipView.<pass>", extend it to trace and collect at the same time
+     * Sections need API 18, nothing is traced below
+     */
+    public static class Tracing extends ChipViewMetrics {
+        private static final String[] SECTION_NAMES = {"ChipView.refresh", "ChipView.update", "ChipView.measure", "ChipView.layout", "ChipView.scroll"};
+
+        @Override
+        public void onPassStart(ChipView chipView, int pass) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+                Trace.beginSection(SECTION_NAMES[pass]);
+        }
+
+        @Override
+        public void onPassEnd(ChipView chipView, int pass, long durationNanos, Counts counts) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+                Trace.endSection();
+        }
+    }
+}
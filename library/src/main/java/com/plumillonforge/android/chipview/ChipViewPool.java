@@ -0,0 +1,154 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of detached Chip views, keyed by the layout res returned by ChipViewAdapter#getViewType
+ * Can be shared between several ChipView
+ */
+public class ChipViewPool {
+    public static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    private SparseArray<ArrayList<View>> mScrapList;
+    private SparseIntArray mMaxRecycledViews;
+    private int mDefaultMaxRecycledViews = DEFAULT_MAX_RECYCLED_VIEWS;
+    private ArrayList<OnViewTakenListener> mOnViewTakenListeners;
+
+    /**
+     * Told when a view leaves the pool, so a ChipViewPrefetcher can refill it
+     */
+    interface OnViewTakenListener {
+        void onViewTaken(int viewType);
+    }
+
+    public ChipViewPool() {
+        mScrapList = new SparseArray<>();
+        mMaxRecycledViews = new SparseIntArray();
+    }
+
+    /**
+     * Take a recycled view of this type out of the pool
+     *
+     * @param viewType
+     * @return View or null if the pool doesn't have any
+     */
+    public View get(int viewType) {
+        ArrayList<View> scrap = mScrapList.get(viewType);
+
+        if (scrap == null || scrap.isEmpty())
+            return null;
+
+        View view = scrap.remove(scrap.size() - 1);
+
+        if (mOnViewTakenListeners != null) {
+            for (int i = mOnViewTakenListeners.size() - 1; i >= 0; i--)
+                mOnViewTakenListeners.get(i).onViewTaken(viewType);
+        }
+
+        return view;
+    }
+
+    /**
+     * Give back a detached view, dropped if the pool is full for this type
+     *
+     * @param viewType
+     * @param view
+     * @return true if the view has been kept
+     */
+    public boolean put(int viewType, View view) {
+        ArrayList<View> scrap = mScrapList.get(viewType);
+
+        if (scrap == null) {
+            scrap = new ArrayList<>();
+            mScrapList.put(viewType, scrap);
+        }
+
+        if (scrap.size() >= getMaxRecycledViews(viewType))
+            return false;
+
+        scrap.add(view);
+
+        return true;
+    }
+
+    public int getRecycledViewCount(int viewType) {
+        ArrayList<View> scrap = mScrapList.get(viewType);
+
+        return (scrap != null ? scrap.size() : 0);
+    }
+
+    public int getMaxRecycledViews(int viewType) {
+        return mMaxRecycledViews.get(viewType, mDefaultMaxRecycledViews);
+    }
+
+    /**
+     * Set how many views of this type the pool can keep
+     *
+     * @param viewType
+     * @param max
+     */
+    public void setMaxRecycledViews(int viewType, int max) {
+        mMaxRecycledViews.put(viewType, max);
+        trim(viewType, max);
+    }
+
+    public int getDefaultMaxRecycledViews() {
+        return mDefaultMaxRecycledViews;
+    }
+
+    /**
+     * Set how many views the pool can keep for types without a specific cap
+     *
+     * @param max
+     */
+    public void setDefaultMaxRecycledViews(int max) {
+        mDefaultMaxRecycledViews = max;
+
+        for (int i = 0; i < mScrapList.size(); i++)
+            trim(mScrapList.keyAt(i), getMaxRecycledViews(mScrapList.keyAt(i)));
+    }
+
+    public void clear() {
+        mScrapList.clear();
+    }
+
+    void addOnViewTakenListener(OnViewTakenListener listener) {
+        if (mOnViewTakenListeners == null)
+            mOnViewTakenListeners = new ArrayList<>();
+
+        if (!mOnViewTakenListeners.contains(listener))
+            mOnViewTakenListeners.add(listener);
+    }
+
+    void removeOnViewTakenListener(OnViewTakenListener listener) {
+        if (mOnViewTakenListeners != null)
+            mOnViewTakenListeners.remove(listener);
+    }
+
+    private void trim(int viewType, int max) {
+        ArrayList<View> scrap = mScrapList.get(viewType);
+
+        while (scrap != null && scrap.size() > max)
+            scrap.remove(scrap.size() - 1);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Keep a ChipView pool filled with Chip views inflated on a background thread while the main thread is idle
+ * A view taken out of the pool is replaced at the next idle pass, until cancel is called
+ * Binding a prefetched type then skips the inflation, only the data is bound
+ * Layouts which can't be inflated off the main thread are inflated on it, one view per idle pass
+ */
+public class ChipViewPrefetcher {
+    private static Executor sInflateExecutor;
+
+    private ChipView mChipView;
+    private Executor mInflateExecutor;
+    private Handler mMainHandler;
+    private SparseIntArray mTargetCounts;
+    private SparseIntArray mInFlightCounts;
+    private SparseBooleanArray mMainThreadTypes;
+    private ChipViewAdapter mInflaterAdapter;
+    private LayoutInflater mInflater;
+    private volatile int mGeneration;
+    private boolean mIdleScheduled;
+    // Pool listened to for refills, the ChipView may be given another one
+    private ChipViewPool mListenedPool;
+    private final ChipViewPool.OnViewTakenListener mViewTakenListener = new ChipViewPool.OnViewTakenListener() {
+        @Override
+        public void onViewTaken(int viewType) {
+            if (mTargetCounts.indexOfKey(viewType) >= 0)
+                scheduleIdle();
+        }
+    };
+    private final MessageQueue.IdleHandler mIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            mIdleScheduled = prefetchMissingViews();
+
+            return mIdleScheduled;
+        }
+    };
+
+    public ChipViewPrefetcher(ChipView chipView) {
+        mChipView = chipView;
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mTargetCounts = new SparseIntArray();
+        mInFlightCounts = new SparseIntArray();
+        mMainThreadTypes = new SparseBooleanArray();
+    }
+
+    /**
+     * Keep count views of this type in the ChipView pool, inflated the next time the main thread is idle
+     * and inflated again whenever the ChipView takes some, the pool cap for this type is raised to count if needed
+     * Must be called from the main thread
+     *
+     * @param viewType the resolved layout res, see ChipViewAdapter#getViewType
+     * @param count
+     */
+    public void prefetch(int viewType, int count) {
+        mTargetCounts.put(viewType, count);
+        ChipViewPool pool = mChipView.getViewPool();
+        listenTo(pool);
+
+        if (pool.getMaxRecycledViews(viewType) < count)
+            pool.setMaxRecycledViews(viewType, count);
+
+        scheduleIdle();
+    }
+
+    /**
+     * Stop prefetching, views being inflated are dropped
+     */
+    public void cancel() {
+        mGeneration++;
+        mTargetCounts.clear();
+        mInFlightCounts.clear();
+        listenTo(null);
+
+        if (mIdleScheduled) {
+            mIdleScheduled = false;
+            Looper.myQueue().removeIdleHandler(mIdleHandler);
+        }
+    }
+
+    public Executor getInflateExecutor() {
+        if (mInflateExecutor == null) {
+            if (sInflateExecutor == null) {
+                sInflateExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "ChipViewPrefetcher inflate");
+                        thread.setDaemon(true);
+
+                        return thread;
+                    }
+                });
+            }
+
+            mInflateExecutor = sInflateExecutor;
+        }
+
+        return mInflateExecutor;
+    }
+
+    /**
+     * Set the executor inflating Chip views, a shared background thread is used otherwise
+     * It must run one task at a time, the LayoutInflater isn't thread safe
+     *
+     * @param inflateExecutor
+     */
+    public void setInflateExecutor(Executor inflateExecutor) {
+        mInflateExecutor = inflateExecutor;
+    }
+
+    private void listenTo(ChipViewPool pool) {
+        if (pool == mListenedPool)
+            return;
+
+        if (mListenedPool != null)
+            mListenedPool.removeOnViewTakenListener(mViewTakenListener);
+
+        mListenedPool = pool;
+
+        if (pool != null)
+            pool.addOnViewTakenListener(mViewTakenListener);
+    }
+
+    private void scheduleIdle() {
+        if (mIdleScheduled)
+            return;
+
+        mIdleScheduled = true;
+        Looper.myQueue().addIdleHandler(mIdleHandler);
+    }
+
+    /**
+     * Start inflating every missing view
+     *
+     * @return true if views are left to inflate on the main thread at the next idle pass
+     */
+    private boolean prefetchMissingViews() {
+        ChipViewAdapter adapter = mChipView.getAdapter();
+        ChipViewPool pool = mChipView.getViewPool();
+        boolean mainThreadLeft = false;
+        listenTo(pool);
+
+        for (int i = 0; i < mTargetCounts.size(); i++) {
+            int viewType = mTargetCounts.keyAt(i);
+            int missing = mTargetCounts.valueAt(i) - pool.getRecycledViewCount(viewType) - mInFlightCounts.get(viewType);
+
+            if (missing <= 0)
+                continue;
+
+            if (mMainThreadTypes.get(viewType)) {
+                // One view per pass so a frame is never blocked by several inflations
+                if (!mainThreadLeft) {
+                    pool.put(viewType, adapter.createView(mChipView, viewType));
+                    missing--;
+                }
+
+                mainThreadLeft |= (missing > 0);
+            } else {
+                mInFlightCounts.put(viewType, mInFlightCounts.get(viewType) + missing);
+                inflate(adapter, viewType, missing);
+            }
+        }
+
+        return mainThreadLeft;
+    }
+
+    private void inflate(final ChipViewAdapter adapter, final int viewType, final int count) {
+        if (adapter != mInflaterAdapter) {
+            mInflaterAdapter = adapter;
+            mInflater = adapter.cloneInflater();
+        }
+
+        final LayoutInflater inflater = mInflater;
+        final int generation = mGeneration;
+
+        getInflateExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                for (int i = 0; i < count && generation == mGeneration; i++) {
+                    View view;
+
+                    try {
+                        view = adapter.createView(inflater, mChipView, viewType);
+                    } catch (RuntimeException e) {
+                        // Needs the main thread (a Handler created by a View for instance)
+                        view = null;
+                    }
+
+                    postInflated(generation, adapter, viewType, view, (view != null ? 1 : count - i));
+
+                    if (view == null)
+                        return;
+                }
+            }
+        });
+    }
+
+    private void postInflated(final int generation, final ChipViewAdapter adapter, final int viewType, final View view, final int consumed) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration)
+                    return;
+
+                mInFlightCounts.put(viewType, mInFlightCounts.get(viewType) - consumed);
+
+                if (view == null) {
+                    mMainThreadTypes.put(viewType, true);
+                    scheduleIdle();
+                } else if (adapter == mChipView.getAdapter())
+                    mChipView.getViewPool().put(viewType, view);
+            }
+        });
+    }
+}
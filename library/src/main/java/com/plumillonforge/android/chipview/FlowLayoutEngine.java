@@ -0,0 +1,285 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+/**
+ * Break Chip sizes into lines and compute each Chip position, the wrapping used by ChipView
+ * Android free and without any shared state, so layouts can be computed on any thread (one engine per thread)
+ * and ahead of binding, the arrays are reused between computations
+ */
+public class FlowLayoutEngine {
+    private int[] mLineStarts;
+    private int[] mLineHeights;
+    private int[] mLefts;
+    private int[] mTops;
+    private int mLineCount;
+    private int mCount;
+    private int mContentWidth;
+    private int mHeight;
+
+    // Line limit
+    private int mMaxLines;
+    private int mOverflowWidth;
+    private int mOverflowHeight;
+    private int mVisibleCount;
+    private int mOverflowCount;
+    private int mOverflowLeft;
+    private int mOverflowTop;
+
+    public FlowLayoutEngine() {
+        mLineStarts = new int[0];
+        mLineHeights = new int[0];
+        mLefts = new int[0];
+        mTops = new int[0];
+    }
+
+    public int getMaxLines() {
+        return mMaxLines;
+    }
+
+    /**
+     * Stop breaking lines after maxLines, the Chip left are replaced by an overflow Chip
+     * ending the last line, Chip are dropped from the last line until it fits
+     *
+     * @param maxLines       0 for no limit
+     * @param overflowWidth  margin box width of the overflow Chip
+     * @param overflowHeight margin box height of the overflow Chip
+     */
+    public void setMaxLines(int maxLines, int overflowWidth, int overflowHeight) {
+        mMaxLines = Math.max(0, maxLines);
+        mOverflowWidth = overflowWidth;
+        mOverflowHeight = overflowHeight;
+    }
+
+    /**
+     * Break the Chip into lines, a Chip wider than the available width gets its own line
+     *
+     * @param widths  margin box width of each Chip, a negative width skips the Chip (gone)
+     * @param heights margin box height of each Chip
+     * @param count
+     * @param availableWidth
+     * @param paddingLeft
+     * @param paddingTop
+     * @param paddingRight
+     * @param paddingBottom
+     * @return int the total height, padding included
+     */
+    public int compute(int[] widths, int[] heights, int count, int availableWidth, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom) {
+        ensureCapacity(count);
+        int lineWidth = paddingLeft;
+        int lineHeight = 0;
+        int lineTop = paddingTop;
+        int lineCount = 0;
+        int visibleCount = count;
+        mContentWidth = 0;
+
+        for (int i = 0; i < count; i++) {
+            int width = widths[i];
+
+            if (width < 0)
+                continue;
+
+            // An oversize Chip starts its own line instead of widening the wrapping width
+            if (lineCount > 0 && lineWidth > paddingLeft && lineWidth + width + paddingRight > availableWidth) {
+                if (lineCount == mMaxLines) {
+                    visibleCount = i;
+                    break;
+                }
+
+                mLineHeights[lineCount - 1] = lineHeight;
+                lineTop += lineHeight;
+                lineWidth = paddingLeft;
+                lineHeight = 0;
+                mLineStarts[lineCount++] = i;
+            } else if (lineCount == 0)
+                mLineStarts[lineCount++] = i;
+
+            mLefts[i] = lineWidth;
+            mTops[i] = lineTop;
+            lineWidth += width;
+            lineHeight = Math.max(lineHeight, heights[i]);
+            mContentWidth = Math.max(mContentWidth, paddingLeft + width + paddingRight);
+        }
+
+        mOverflowCount = 0;
+
+        if (visibleCount < count) {
+            int lineStart = mLineStarts[lineCount - 1];
+
+            // Make room for the overflow Chip at the end of the last line
+            while (visibleCount > lineStart && lineWidth + mOverflowWidth + paddingRight > availableWidth) {
+                visibleCount--;
+
+                if (widths[visibleCount] >= 0)
+                    lineWidth = mLefts[visibleCount];
+            }
+
+            lineHeight = mOverflowHeight;
+
+            for (int i = lineStart; i < visibleCount; i++) {
+                if (widths[i] >= 0)
+                    lineHeight = Math.max(lineHeight, heights[i]);
+            }
+
+            for (int i = visibleCount; i < count; i++) {
+                if (widths[i] >= 0)
+                    mOverflowCount++;
+            }
+
+            mOverflowLeft = lineWidth;
+            mOverflowTop = lineTop;
+            mContentWidth = Math.max(mContentWidth, paddingLeft + mOverflowWidth + paddingRight);
+        }
+
+        if (lineCount > 0) {
+            mLineHeights[lineCount - 1] = lineHeight;
+            lineTop += lineHeight;
+        }
+
+        mLineCount = lineCount;
+        mCount = count;
+        mVisibleCount = visibleCount;
+        mHeight = lineTop + paddingBottom;
+
+        return mHeight;
+    }
+
+    /**
+     * Return the number of Chip of the last computation
+     *
+     * @return int
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    public int getLineCount() {
+        return mLineCount;
+    }
+
+    /**
+     * Return the position of the first Chip of a line
+     *
+     * @param line
+     * @return int
+     */
+    public int getLineStart(int line) {
+        return mLineStarts[line];
+    }
+
+    /**
+     * Return the position after the last Chip of a line
+     *
+     * @param line
+     * @return int
+     */
+    public int getLineEnd(int line) {
+        return (line + 1 < mLineCount ? mLineStarts[line + 1] : mVisibleCount);
+    }
+
+    /**
+     * Return the position after the last Chip shown, less than getCount when the line limit hides some
+     *
+     * @return int
+     */
+    public int getVisibleCount() {
+        return mVisibleCount;
+    }
+
+    /**
+     * Return the number of Chip hidden by the line limit, gone Chip excluded
+     *
+     * @return int 0 if there is no overflow Chip
+     */
+    public int getOverflowCount() {
+        return mOverflowCount;
+    }
+
+    /**
+     * Return the left of the overflow Chip margin box
+     *
+     * @return int
+     */
+    public int getOverflowLeft() {
+        return mOverflowLeft;
+    }
+
+    /**
+     * Return the top of the overflow Chip margin box
+     *
+     * @return int
+     */
+    public int getOverflowTop() {
+        return mOverflowTop;
+    }
+
+    public int getLineTop(int line) {
+        return mTops[mLineStarts[line]];
+    }
+
+    public int getLineHeight(int line) {
+        return mLineHeights[line];
+    }
+
+    /**
+     * Return the left of a Chip margin box
+     *
+     * @param position
+     * @return int
+     */
+    public int getLeft(int position) {
+        return mLefts[position];
+    }
+
+    /**
+     * Return the top of a Chip margin box
+     *
+     * @param position
+     * @return int
+     */
+    public int getTop(int position) {
+        return mTops[position];
+    }
+
+    /**
+     * Return the widest line a single Chip needs, padding included
+     *
+     * @return int
+     */
+    public int getContentWidth() {
+        return mContentWidth;
+    }
+
+    /**
+     * Return the total height of the last computation, padding included
+     *
+     * @return int
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    private void ensureCapacity(int count) {
+        if (mLefts.length < count) {
+            int capacity = Math.max(count, mLefts.length * 2);
+            mLineStarts = new int[capacity];
+            mLineHeights = new int[capacity];
+            mLefts = new int[capacity];
+            mTops = new int[capacity];
+        }
+    }
+}
@@ -0,0 +1,438 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * RecyclerView LayoutManager flowing items in wrapping lines, like ChipView does
+ * Pair it with a ChipRecyclerAdapter to keep the ChipViewAdapter configuration
+ * Line breaks are computed lazily from the top and kept until an item before them changes
+ * The scrollbar range beyond the computed lines is estimated from the average line height so far
+ */
+public class FlowLayoutManager extends RecyclerView.LayoutManager {
+    // Computed lines, every position before mComputedCount has a frame
+    private int[] mItemLefts;
+    private int[] mItemLines;
+    private int[] mLineStarts;
+    private int[] mLineTops;
+    private int[] mLineHeights;
+    private int mLineCount;
+    private int mComputedCount;
+    private int mComputedWidth = -1;
+
+    private int mScrollOffset;
+    private int mPendingScrollPosition = RecyclerView.NO_POSITION;
+    private int mPendingScrollOffset;
+    private SparseArray<View> mMeasuredViews;
+
+    public FlowLayoutManager() {
+        mItemLefts = new int[0];
+        mItemLines = new int[0];
+        mLineStarts = new int[0];
+        mLineTops = new int[0];
+        mLineHeights = new int[0];
+        mMeasuredViews = new SparseArray<>();
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateDefaultLayoutParams() {
+        return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public boolean canScrollVertically() {
+        return true;
+    }
+
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        int itemCount = state.getItemCount();
+
+        if (itemCount == 0) {
+            removeAndRecycleAllViews(recycler);
+            invalidateFrom(0);
+            mScrollOffset = 0;
+            return;
+        }
+
+        if (state.isPreLayout())
+            return;
+
+        if (mComputedWidth != getWidth()) {
+            invalidateFrom(0);
+            mComputedWidth = getWidth();
+        }
+
+        ensureCapacity(itemCount);
+        detachAndScrapAttachedViews(recycler);
+
+        if (mPendingScrollPosition != RecyclerView.NO_POSITION) {
+            int position = Math.min(mPendingScrollPosition, itemCount - 1);
+            computeUntil(recycler, itemCount, position);
+            mScrollOffset = mLineTops[mItemLines[position]] - getPaddingTop() + mPendingScrollOffset;
+            mPendingScrollPosition = RecyclerView.NO_POSITION;
+            mPendingScrollOffset = 0;
+        }
+
+        // Keep the offset inside the content which may have shrunk
+        computeUntilBottom(recycler, itemCount, mScrollOffset + getHeight());
+        mScrollOffset = Math.max(0, Math.min(mScrollOffset, getMaxScrollOffset(itemCount)));
+        fill(recycler, itemCount);
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        int itemCount = state.getItemCount();
+
+        if (getChildCount() == 0 || dy == 0)
+            return 0;
+
+        int delta;
+
+        if (dy > 0) {
+            computeUntilBottom(recycler, itemCount, mScrollOffset + getHeight() + dy);
+            delta = Math.min(dy, Math.max(0, getMaxScrollOffset(itemCount) - mScrollOffset));
+        } else
+            delta = Math.max(dy, -mScrollOffset);
+
+        mScrollOffset += delta;
+        offsetChildrenVertical(-delta);
+        fill(recycler, itemCount);
+
+        return delta;
+    }
+
+    @Override
+    public void scrollToPosition(int position) {
+        mPendingScrollPosition = position;
+        mPendingScrollOffset = 0;
+        requestLayout();
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(RecyclerView.State state) {
+        return (getChildCount() > 0 ? mScrollOffset : 0);
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(RecyclerView.State state) {
+        return (getChildCount() > 0 ? getHeight() : 0);
+    }
+
+    @Override
+    public int computeVerticalScrollRange(RecyclerView.State state) {
+        if (getChildCount() == 0 || mLineCount == 0)
+            return 0;
+
+        int itemCount = state.getItemCount();
+        long contentHeight = mLineTops[mLineCount - 1] + mLineHeights[mLineCount - 1] - getPaddingTop();
+
+        // Lines not computed yet are as high as the computed ones, per item
+        if (mComputedCount < itemCount)
+            contentHeight = contentHeight * itemCount / mComputedCount;
+
+        return (int) Math.min(Integer.MAX_VALUE, contentHeight + getPaddingTop() + getPaddingBottom());
+    }
+
+    /**
+     * Save the first visible line as its first position and the offset inside it, the lines may break
+     * differently once restored at another width
+     *
+     * @return Parcelable
+     */
+    @Override
+    public Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState();
+
+        if (mPendingScrollPosition != RecyclerView.NO_POSITION) {
+            state.mAnchorPosition = mPendingScrollPosition;
+            state.mAnchorOffset = mPendingScrollOffset;
+        } else if (getChildCount() > 0 && mLineCount > 0) {
+            int line = findFirstLineBelow(mScrollOffset);
+            state.mAnchorPosition = mLineStarts[line];
+            state.mAnchorOffset = mScrollOffset - (mLineTops[line] - getPaddingTop());
+        }
+
+        return state;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState))
+            return;
+
+        mPendingScrollPosition = ((SavedState) state).mAnchorPosition;
+        mPendingScrollOffset = ((SavedState) state).mAnchorOffset;
+        requestLayout();
+    }
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        invalidateFrom(positionStart);
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        invalidateFrom(positionStart);
+    }
+
+    @Override
+    public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+        invalidateFrom(positionStart);
+    }
+
+    @Override
+    public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+        invalidateFrom(Math.min(from, to));
+    }
+
+    @Override
+    public void onItemsChanged(RecyclerView recyclerView) {
+        invalidateFrom(0);
+    }
+
+    @Override
+    public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter) {
+        removeAllViews();
+        invalidateFrom(0);
+        mScrollOffset = 0;
+    }
+
+    /**
+     * Lay out the items of the lines inside the window and recycle the others
+     *
+     * @param recycler
+     * @param itemCount
+     */
+    private void fill(RecyclerView.Recycler recycler, int itemCount) {
+        int top = mScrollOffset;
+        int bottom = mScrollOffset + getHeight();
+        computeUntilBottom(recycler, itemCount, bottom);
+
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            int line = mItemLines[getPosition(child)];
+
+            if (mLineTops[line] + mLineHeights[line] <= top || mLineTops[line] >= bottom)
+                removeAndRecycleView(child, recycler);
+        }
+
+        if (mLineCount > 0) {
+            int firstLine = findFirstLineBelow(top);
+            int lastLine = firstLine;
+
+            while (lastLine + 1 < mLineCount && mLineTops[lastLine + 1] < bottom)
+                lastLine++;
+
+            int firstPosition = mLineStarts[firstLine];
+            int lastPosition = (lastLine + 1 < mLineCount ? mLineStarts[lastLine + 1] : mComputedCount) - 1;
+
+            if (getChildCount() == 0) {
+                for (int position = firstPosition; position <= lastPosition; position++)
+                    addItem(recycler, position, -1);
+            } else {
+                int firstAttached = getPosition(getChildAt(0));
+                int lastAttached = getPosition(getChildAt(getChildCount() - 1));
+
+                for (int position = firstPosition; position < firstAttached; position++)
+                    addItem(recycler, position, position - firstPosition);
+
+                for (int position = lastAttached + 1; position <= lastPosition; position++)
+                    addItem(recycler, position, -1);
+            }
+        }
+
+        // Items measured for the line breaks but outside the window
+        for (int i = 0; i < mMeasuredViews.size(); i++)
+            recycler.recycleView(mMeasuredViews.valueAt(i));
+
+        mMeasuredViews.clear();
+    }
+
+    private void addItem(RecyclerView.Recycler recycler, int position, int index) {
+        View view = mMeasuredViews.get(position);
+
+        if (view != null)
+            mMeasuredViews.remove(position);
+        else {
+            view = recycler.getViewForPosition(position);
+            measureChildWithMargins(view, 0, 0);
+        }
+
+        addView(view, index);
+        ViewGroup.MarginLayoutParams layoutParams = (ViewGroup.MarginLayoutParams) view.getLayoutParams();
+        int left = mItemLefts[position] + layoutParams.leftMargin;
+        int top = mLineTops[mItemLines[position]] - mScrollOffset + layoutParams.topMargin;
+        layoutDecorated(view, left, top, left + getDecoratedMeasuredWidth(view), top + getDecoratedMeasuredHeight(view));
+    }
+
+    private void computeUntil(RecyclerView.Recycler recycler, int itemCount, int position) {
+        while (mComputedCount <= position && mComputedCount < itemCount)
+            computeNextLine(recycler, itemCount);
+    }
+
+    private void computeUntilBottom(RecyclerView.Recycler recycler, int itemCount, int bottom) {
+        while (mComputedCount < itemCount && (mLineCount == 0 || mLineTops[mLineCount - 1] + mLineHeights[mLineCount - 1] < bottom))
+            computeNextLine(recycler, itemCount);
+    }
+
+    /**
+     * Measure items after the last computed line until one doesn't fit anymore
+     *
+     * @param recycler
+     * @param itemCount
+     */
+    private void computeNextLine(RecyclerView.Recycler recycler, int itemCount) {
+        ensureCapacity(itemCount);
+        int line = mLineCount;
+        int position = mComputedCount;
+        int availableWidth = getWidth() - getPaddingRight();
+        int lineLeft = getPaddingLeft();
+        int lineHeight = 0;
+
+        while (position < itemCount) {
+            View view = mMeasuredViews.get(position);
+
+            if (view == null) {
+                view = recycler.getViewForPosition(position);
+                measureChildWithMargins(view, 0, 0);
+                mMeasuredViews.put(position, view);
+            }
+
+            ViewGroup.MarginLayoutParams layoutParams = (ViewGroup.MarginLayoutParams) view.getLayoutParams();
+            int width = getDecoratedMeasuredWidth(view) + layoutParams.leftMargin + layoutParams.rightMargin;
+            int height = getDecoratedMeasuredHeight(view) + layoutParams.topMargin + layoutParams.bottomMargin;
+
+            if (lineLeft > getPaddingLeft() && lineLeft + width > availableWidth)
+                break;
+
+            mItemLefts[position] = lineLeft;
+            mItemLines[position] = line;
+            lineLeft += width;
+            lineHeight = Math.max(lineHeight, height);
+            position++;
+        }
+
+        mLineStarts[line] = mComputedCount;
+        mLineTops[line] = (line == 0 ? getPaddingTop() : mLineTops[line - 1] + mLineHeights[line - 1]);
+        mLineHeights[line] = lineHeight;
+        mLineCount++;
+        mComputedCount = position;
+    }
+
+    private int findFirstLineBelow(int top) {
+        int low = 0;
+        int high = mLineCount - 1;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (mLineTops[mid] + mLineHeights[mid] <= top)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return low;
+    }
+
+    private int getMaxScrollOffset(int itemCount) {
+        if (mComputedCount < itemCount || mLineCount == 0)
+            return Integer.MAX_VALUE;
+
+        return Math.max(0, mLineTops[mLineCount - 1] + mLineHeights[mLineCount - 1] + getPaddingBottom() - getHeight());
+    }
+
+    /**
+     * Forget the line containing position and every line after it
+     * Items added after the last computed line may fit in it, it is computed again too
+     *
+     * @param position
+     */
+    private void invalidateFrom(int position) {
+        if (position < mComputedCount) {
+            mLineCount = mItemLines[position];
+            mComputedCount = mLineStarts[mLineCount];
+        } else if (mLineCount > 0 && position >= mLineStarts[mLineCount - 1]) {
+            mLineCount--;
+            mComputedCount = mLineStarts[mLineCount];
+        }
+    }
+
+    private void ensureCapacity(int itemCount) {
+        if (mItemLefts.length < itemCount) {
+            int capacity = Math.max(itemCount, mItemLefts.length * 2);
+            int[] itemLefts = new int[capacity];
+            int[] itemLines = new int[capacity];
+            int[] lineStarts = new int[capacity];
+            int[] lineTops = new int[capacity];
+            int[] lineHeights = new int[capacity];
+            System.arraycopy(mItemLefts, 0, itemLefts, 0, mComputedCount);
+            System.arraycopy(mItemLines, 0, itemLines, 0, mComputedCount);
+            System.arraycopy(mLineStarts, 0, lineStarts, 0, mLineCount);
+            System.arraycopy(mLineTops, 0, lineTops, 0, mLineCount);
+            System.arraycopy(mLineHeights, 0, lineHeights, 0, mLineCount);
+            mItemLefts = itemLefts;
+            mItemLines = itemLines;
+            mLineStarts = lineStarts;
+            mLineTops = lineTops;
+            mLineHeights = lineHeights;
+        }
+    }
+
+    public static class SavedState implements Parcelable {
+        private int mAnchorPosition = RecyclerView.NO_POSITION;
+        private int mAnchorOffset;
+
+        SavedState() {
+        }
+
+        SavedState(Parcel in) {
+            mAnchorPosition = in.readInt();
+            mAnchorOffset = in.readInt();
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeInt(mAnchorPosition);
+            dest.writeInt(mAnchorOffset);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+}
@@ -0,0 +1,30 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+/**
+ * Chip with an id, two Chip with the same id are the same Chip even if their text differ
+ * Used when the adapter has stable ids, see ChipViewAdapter#setHasStableIds
+ */
+public interface StableIdChip extends Chip {
+    /**
+     * Return the Chip id, unique within an adapter
+     *
+     * @return long
+     */
+    long getId();
+}
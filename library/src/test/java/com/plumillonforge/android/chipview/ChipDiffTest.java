@@ -0,0 +1,238 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Plain JVM tests : the operations of a diff, applied to the old list, must give the new one
+ */
+public class ChipDiffTest {
+    private static final ChipDiff.Callback CALLBACK = new ChipDiff.Callback() {
+        @Override
+        public Object getKey(Chip chip) {
+            return ((TestChip) chip).mKey;
+        }
+
+        @Override
+        public boolean areContentsTheSame(Chip oldChip, Chip newChip) {
+            return oldChip.getText().equals(newChip.getText());
+        }
+
+        @Override
+        public Object getChangePayload(Chip oldChip, Chip newChip) {
+            return (newChip.getText().startsWith("!") ? PAYLOAD : null);
+        }
+    };
+    private static final Object PAYLOAD = new Object();
+
+    @Test
+    public void identicalLists() {
+        List<Chip> chips = chips("a", "b", "c");
+
+        assertEquals(0, ChipDiff.calculate(chips, chips("a", "b", "c"), CALLBACK).getOperationCount());
+    }
+
+    @Test
+    public void insertions() {
+        assertDiff(chips("a", "b", "c"), chips("x", "a", "y", "z", "b", "c", "w"));
+        assertDiff(chips(), chips("a", "b"));
+    }
+
+    @Test
+    public void removals() {
+        assertDiff(chips("a", "b", "c", "d", "e"), chips("b", "d"));
+        assertDiff(chips("a", "b"), chips());
+    }
+
+    @Test
+    public void moves() {
+        assertDiff(chips("a", "b", "c", "d", "e"), chips("e", "a", "c", "b", "d"));
+        assertDiff(chips("a", "b", "c", "d", "e"), chips("e", "d", "c", "b", "a"));
+    }
+
+    @Test
+    public void changes() {
+        List<Chip> newChips = chips("a", "b", "c", "d");
+        ((TestChip) newChips.get(1)).mText = "B";
+        ((TestChip) newChips.get(2)).mText = "C";
+
+        TestUpdateCallback callback = assertDiff(chips("a", "b", "c", "d"), newChips);
+        assertEquals(Arrays.asList(1, 2), callback.mChanged);
+    }
+
+    @Test
+    public void changePayloads() {
+        List<Chip> newChips = chips("a", "b", "c", "d", "e");
+        ((TestChip) newChips.get(1)).mText = "!b";
+        ((TestChip) newChips.get(2)).mText = "!c";
+        ((TestChip) newChips.get(3)).mText = "D";
+
+        TestUpdateCallback callback = assertDiff(chips("a", "b", "c", "d", "e"), newChips);
+        assertEquals(Arrays.asList(1, 2, 3), callback.mChanged);
+        assertEquals(Arrays.asList(PAYLOAD, PAYLOAD, null), callback.mChangePayloads);
+        assertEquals(2, callback.mChangeCount);
+    }
+
+    @Test
+    public void mixedOperations() {
+        List<Chip> newChips = chips("f", "c", "x", "a", "e", "y");
+        ((TestChip) newChips.get(3)).mText = "A";
+
+        TestUpdateCallback callback = assertDiff(chips("a", "b", "c", "d", "e", "f"), newChips);
+        assertEquals(Collections.singletonList(3), callback.mChanged);
+    }
+
+    @Test
+    public void duplicateKeys() {
+        assertDiff(chips("a", "a", "b", "a"), chips("b", "a", "a"));
+    }
+
+    @Test
+    public void randomLists() {
+        Random random = new Random(42);
+
+        for (int run = 0; run < 200; run++) {
+            List<Chip> oldChips = new ArrayList<>();
+            List<Chip> newChips = new ArrayList<>();
+
+            for (int i = 0; i < 30; i++) {
+                if (random.nextInt(4) > 0)
+                    oldChips.add(new TestChip("k" + i, "t" + i));
+
+                if (random.nextInt(4) > 0)
+                    newChips.add(new TestChip("k" + i, (random.nextInt(5) == 0 ? "changed" : "t" + i)));
+            }
+
+            Collections.shuffle(newChips, random);
+            assertDiff(oldChips, newChips);
+        }
+    }
+
+    @Test
+    public void reversedLargeList() {
+        List<Chip> oldChips = new ArrayList<>();
+
+        for (int i = 0; i < 50000; i++)
+            oldChips.add(new TestChip("k" + i, "t" + i));
+
+        List<Chip> newChips = new ArrayList<>(oldChips);
+        Collections.reverse(newChips);
+
+        assertDiff(oldChips, newChips);
+    }
+
+    /**
+     * Apply the diff to the old keys, inserted positions are left empty, then compare with the new keys
+     */
+    private static TestUpdateCallback assertDiff(List<Chip> oldChips, List<Chip> newChips) {
+        TestUpdateCallback callback = new TestUpdateCallback(oldChips);
+        ChipDiff.calculate(oldChips, newChips, CALLBACK).dispatchTo(callback);
+
+        assertEquals(newChips.size(), callback.mKeys.size());
+
+        for (int i = 0; i < newChips.size(); i++) {
+            if (callback.mKeys.get(i) != null)
+                assertEquals(((TestChip) newChips.get(i)).mKey, callback.mKeys.get(i));
+        }
+
+        // Every empty position must hold a Chip missing from the old list
+        List<Object> oldKeys = new ArrayList<>();
+
+        for (Chip chip : oldChips)
+            oldKeys.add(((TestChip) chip).mKey);
+
+        for (int i = 0; i < newChips.size(); i++) {
+            if (callback.mKeys.get(i) == null)
+                assertEquals(false, oldKeys.remove(((TestChip) newChips.get(i)).mKey));
+        }
+
+        return callback;
+    }
+
+    private static List<Chip> chips(String... keys) {
+        List<Chip> chips = new ArrayList<>();
+
+        for (String key : keys)
+            chips.add(new TestChip(key, key));
+
+        return chips;
+    }
+
+    private static class TestChip implements Chip {
+        private final String mKey;
+        private String mText;
+
+        TestChip(String key, String text) {
+            mKey = key;
+            mText = text;
+        }
+
+        @Override
+        public String getText() {
+            return mText;
+        }
+    }
+
+    private static class TestUpdateCallback implements ChipDiff.UpdateCallback {
+        private final List<Object> mKeys = new ArrayList<>();
+        private final List<Integer> mChanged = new ArrayList<>();
+        private final List<Object> mChangePayloads = new ArrayList<>();
+        private int mChangeCount;
+
+        TestUpdateCallback(List<Chip> oldChips) {
+            for (Chip chip : oldChips)
+                mKeys.add(((TestChip) chip).mKey);
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            for (int i = 0; i < count; i++)
+                mKeys.add(position, null);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            for (int i = 0; i < count; i++)
+                mKeys.remove(position);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            Object key = mKeys.remove(fromPosition);
+            mKeys.add(toPosition, key);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            mChangeCount++;
+
+            for (int i = 0; i < count; i++) {
+                mChanged.add(position + i);
+                mChangePayloads.add(payload);
+            }
+        }
+    }
+}
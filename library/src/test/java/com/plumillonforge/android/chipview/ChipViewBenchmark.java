@@ -0,0 +1,309 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Time and allocations of the ChipView passes on a plain JVM, from 10 to 10,000 Chip
+ * Robolectric doesn't shape text so absolute numbers are far from a device, compare runs with each other
+ * Skipped by the regular unit tests, run with ./gradlew :library:testDebugUnitTest -Pbenchmark --tests '*ChipViewBenchmark'
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ChipViewBenchmark {
+    private static final int[] CHIP_COUNTS = {10, 100, 1000, 10000};
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 10;
+    private static final int WIDTH = 1080;
+
+    @Before
+    public void assumeBenchmark() {
+        Assume.assumeTrue(Boolean.getBoolean("chipview.benchmark"));
+    }
+
+    @Test
+    public void refresh() {
+        for (int chipCount : CHIP_COUNTS) {
+            final ChipView chipView = createChipView(chipCount);
+
+            run("refresh", chipCount, new Runnable() {
+                @Override
+                public void run() {
+                    chipView.refresh();
+                    measureAndLayout(chipView);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void measureAndLayout() {
+        for (int chipCount : CHIP_COUNTS) {
+            final ChipView chipView = createChipView(chipCount);
+
+            run("measure and layout", chipCount, new Runnable() {
+                @Override
+                public void run() {
+                    chipView.requestLayout();
+                    measureAndLayout(chipView);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void addAndRemove() {
+        for (int chipCount : CHIP_COUNTS) {
+            final ChipView chipView = createChipView(chipCount);
+            final Chip chip = new BenchmarkChip("lorem ipsum");
+
+            run("add and remove", chipCount, new Runnable() {
+                @Override
+                public void run() {
+                    chipView.add(chip);
+                    chipView.flush();
+                    measureAndLayout(chipView);
+                    chipView.remove(chip);
+                    chipView.flush();
+                    measureAndLayout(chipView);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void createAndBindView() {
+        for (int chipCount : CHIP_COUNTS) {
+            final ChipView chipView = createChipView(chipCount);
+            final ChipViewAdapter adapter = chipView.getAdapter();
+
+            run("adapter createView + bindView", chipCount, new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < adapter.count(); i++)
+                        adapter.bindView(adapter.createView(chipView, adapter.getViewType(i)), i);
+                }
+            });
+        }
+    }
+
+    private ChipView createChipView(int chipCount) {
+        // Detached, flush applies the changes deferred until shown
+        Context context = RuntimeEnvironment.application;
+        ChipView chipView = new ChipView(context);
+        chipView.setAdapter(new BenchmarkAdapter(context));
+        chipView.setChipList(createChipList(chipCount));
+        chipView.flush();
+        measureAndLayout(chipView);
+
+        return chipView;
+    }
+
+    private static void measureAndLayout(ChipView chipView) {
+        chipView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        chipView.layout(0, 0, chipView.getMeasuredWidth(), chipView.getMeasuredHeight());
+    }
+
+    /**
+     * Texts of mixed lengths, one Chip out of 50 is wider than a line
+     */
+    private static List<Chip> createChipList(int chipCount) {
+        Random random = new Random(42);
+        List<Chip> chipList = new ArrayList<>(chipCount);
+
+        for (int i = 0; i < chipCount; i++) {
+            int length = (i % 50 == 49 ? 200 : 3 + random.nextInt(16));
+            StringBuilder text = new StringBuilder();
+
+            for (int j = 0; j < length; j++)
+                text.append((char) ('a' + random.nextInt(26)));
+
+            chipList.add(new BenchmarkChip(text.toString()));
+        }
+
+        return chipList;
+    }
+
+    private static void run(String name, int chipCount, Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            operation.run();
+
+        long allocatedBytes = getAllocatedBytes();
+        long startTime = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++)
+            operation.run();
+
+        long duration = (System.nanoTime() - startTime) / ITERATIONS;
+        long allocations = (allocatedBytes >= 0 ? (getAllocatedBytes() - allocatedBytes) / ITERATIONS : -1);
+        System.out.println(String.format(Locale.US, "%-20s %6d chips %12.1f us/op %14d B/op", name, chipCount, duration / 1000f, allocations));
+    }
+
+    /**
+     * Bytes allocated by the current thread, -1 if the JVM can't tell
+     */
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+        if (threadBean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+
+        return -1;
+    }
+
+    private static class BenchmarkChip implements Chip {
+        private final String mText;
+
+        BenchmarkChip(String text) {
+            mText = text;
+        }
+
+        @Override
+        public String getText() {
+            return mText;
+        }
+    }
+
+    /**
+     * Default, close and double close layouts like the sample, two background colors so both selector cache entries are used
+     * The close layouts are built in code, so no benchmark resource ends up in the library
+     */
+    private static class BenchmarkAdapter extends ChipViewAdapter {
+        // Fake layout res ids, only known by createView
+        private static final int LAYOUT_CLOSE = 1;
+        private static final int LAYOUT_DOUBLE_CLOSE = 2;
+
+        BenchmarkAdapter(Context context) {
+            super(context);
+        }
+
+        @Override
+        public int getLayoutRes(int position) {
+            switch (position % 4) {
+                default:
+                    return 0;
+
+                case 1:
+                    return LAYOUT_CLOSE;
+
+                case 3:
+                    return LAYOUT_DOUBLE_CLOSE;
+            }
+        }
+
+        /**
+         * Same hierarchy as the sample chip_close and chip_double_close, what inflating them would give
+         */
+        @Override
+        View createView(LayoutInflater inflater, ViewGroup parent, int viewType) {
+            if (viewType == 0)
+                return super.createView(inflater, parent, viewType);
+
+            Context context = inflater.getContext();
+            float density = context.getResources().getDisplayMetrics().density;
+            FrameLayout view = new FrameLayout(context);
+            view.setLayoutParams(new ViewGroup.MarginLayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+
+            FrameLayout content = new FrameLayout(context);
+            content.setId(android.R.id.content);
+            view.addView(content);
+
+            LinearLayout line = new LinearLayout(context);
+            line.setOrientation(LinearLayout.HORIZONTAL);
+            line.setGravity(Gravity.CENTER);
+            line.setPadding(dp(6, density), dp(4, density), dp(6, density), dp(4, density));
+            content.addView(line);
+
+            if (viewType == LAYOUT_DOUBLE_CLOSE) {
+                LinearLayout.LayoutParams iconParams = new LinearLayout.LayoutParams(dp(6, density), dp(6, density));
+                iconParams.rightMargin = dp(4, density);
+                line.addView(createIcon(context), iconParams);
+            }
+
+            TextView text = new TextView(context);
+            text.setId(android.R.id.text1);
+            text.setSingleLine(false);
+            text.setTextColor(viewType == LAYOUT_DOUBLE_CLOSE ? Color.WHITE : Color.BLACK);
+            line.addView(text);
+
+            LinearLayout.LayoutParams closeParams = new LinearLayout.LayoutParams(dp(12, density), dp(12, density));
+            closeParams.leftMargin = dp(4, density);
+            ImageView close = createIcon(context);
+            close.setId(android.R.id.closeButton);
+            line.addView(close, closeParams);
+
+            // No margin on the root, like the sample layouts the spacing fallbacks apply
+            view.setTag(R.id.chip_view_holder, new ChipViewHolder(view, viewType, true, true));
+
+            return view;
+        }
+
+        private static ImageView createIcon(Context context) {
+            ImageView icon = new ImageView(context);
+            icon.setImageResource(android.R.drawable.ic_menu_close_clear_cancel);
+
+            return icon;
+        }
+
+        private static int dp(int value, float density) {
+            return Math.round(value * density);
+        }
+
+        @Override
+        public int getBackgroundRes(int position) {
+            return 0;
+        }
+
+        @Override
+        public int getBackgroundColor(int position) {
+            return (position % 3 == 0 ? Color.LTGRAY : 0);
+        }
+
+        @Override
+        public int getBackgroundColorSelected(int position) {
+            return 0;
+        }
+
+        @Override
+        public void onLayout(View view, int position) {
+        }
+    }
+}
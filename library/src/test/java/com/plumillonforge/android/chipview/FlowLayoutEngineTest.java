@@ -0,0 +1,262 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Plain JVM tests : line breaks, Chip positions and line limit computed from margin box sizes, spacing included
+ */
+public class FlowLayoutEngineTest {
+    private static final int HEIGHT = 20;
+
+    @Test
+    public void wrapsWhenLineIsFull() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        int height = compute(engine, 100, 0, 40, 40, 40);
+
+        assertEquals(2, engine.getLineCount());
+        assertLine(engine, 0, 0, 2);
+        assertLine(engine, 1, 2, 3);
+        assertPosition(engine, 0, 0, 0);
+        assertPosition(engine, 1, 40, 0);
+        assertPosition(engine, 2, 0, HEIGHT);
+        assertEquals(2 * HEIGHT, height);
+    }
+
+    @Test
+    public void exactFitStaysOnLine() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        compute(engine, 100, 0, 50, 50);
+
+        assertEquals(1, engine.getLineCount());
+        assertPosition(engine, 1, 50, 0);
+    }
+
+    @Test
+    public void lineHeightIsTallestChip() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        int height = engine.compute(new int[]{40, 40, 40}, new int[]{20, 35, 10}, 3, 100, 0, 0, 0, 0);
+
+        assertEquals(35, engine.getLineHeight(0));
+        assertEquals(10, engine.getLineHeight(1));
+        assertEquals(35, engine.getLineTop(1));
+        assertEquals(45, height);
+    }
+
+    @Test
+    public void oversizeChipGetsItsOwnLine() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        compute(engine, 100, 0, 30, 150, 30);
+
+        assertEquals(3, engine.getLineCount());
+        assertLine(engine, 0, 0, 1);
+        assertLine(engine, 1, 1, 2);
+        assertLine(engine, 2, 2, 3);
+        assertPosition(engine, 1, 0, HEIGHT);
+        assertPosition(engine, 2, 0, 2 * HEIGHT);
+        assertEquals(150, engine.getContentWidth());
+    }
+
+    @Test
+    public void oversizeFirstChip() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        compute(engine, 100, 0, 150, 30);
+
+        assertEquals(2, engine.getLineCount());
+        assertPosition(engine, 0, 0, 0);
+        assertPosition(engine, 1, 0, HEIGHT);
+    }
+
+    @Test
+    public void paddingIsAppliedAroundLines() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        int height = engine.compute(new int[]{40, 40, 40}, heights(3), 3, 100, 10, 5, 10, 7);
+
+        // 10 + 40 + 40 + 10 fits exactly, the third Chip wraps
+        assertEquals(2, engine.getLineCount());
+        assertPosition(engine, 0, 10, 5);
+        assertPosition(engine, 1, 50, 5);
+        assertPosition(engine, 2, 10, 5 + HEIGHT);
+        assertEquals(5 + 2 * HEIGHT + 7, height);
+        assertEquals(10 + 40 + 10, engine.getContentWidth());
+    }
+
+    @Test
+    public void rightPaddingForcesWrap() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        engine.compute(new int[]{50, 50}, heights(2), 2, 100, 0, 0, 1, 0);
+
+        assertEquals(2, engine.getLineCount());
+    }
+
+    @Test
+    public void goneChipsAreSkipped() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        compute(engine, 100, 0, 40, -1, 40, 40);
+
+        assertEquals(2, engine.getLineCount());
+        assertLine(engine, 0, 0, 3);
+        assertPosition(engine, 2, 40, 0);
+        assertPosition(engine, 3, 0, HEIGHT);
+    }
+
+    @Test
+    public void emptyList() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        int height = engine.compute(new int[0], new int[0], 0, 100, 10, 5, 10, 7);
+
+        assertEquals(0, engine.getLineCount());
+        assertEquals(12, height);
+    }
+
+    @Test
+    public void reusedAfterLargerList() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        compute(engine, 100, 0, 40, 40, 40, 40, 40, 40, 40);
+        int height = compute(engine, 100, 0, 60, 60);
+
+        assertEquals(2, engine.getCount());
+        assertEquals(2, engine.getLineCount());
+        assertLine(engine, 1, 1, 2);
+        assertEquals(2 * HEIGHT, height);
+    }
+
+    @Test
+    public void noOverflowWhenEverythingFits() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        engine.setMaxLines(2, 20, 30);
+        int height = compute(engine, 100, 0, 40, 40, 40);
+
+        assertEquals(2, engine.getLineCount());
+        assertEquals(3, engine.getVisibleCount());
+        assertEquals(0, engine.getOverflowCount());
+        assertEquals(2 * HEIGHT, height);
+    }
+
+    @Test
+    public void maxLinesCapsLines() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        engine.setMaxLines(1, 10, HEIGHT);
+        int height = compute(engine, 100, 0, 30, 30, 30, 30, 30);
+
+        // 30 + 30 + 30 + 10 fits exactly, no Chip is dropped for the overflow Chip
+        assertEquals(1, engine.getLineCount());
+        assertLine(engine, 0, 0, 3);
+        assertEquals(3, engine.getVisibleCount());
+        assertEquals(2, engine.getOverflowCount());
+        assertEquals(90, engine.getOverflowLeft());
+        assertEquals(0, engine.getOverflowTop());
+        assertEquals(HEIGHT, height);
+    }
+
+    @Test
+    public void overflowChipPushesLastChipOut() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        engine.setMaxLines(2, 30, 30);
+        int height = compute(engine, 100, 0, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40);
+
+        // 40 + 40 + 30 is too wide, the fourth Chip was on the second line before making room
+        assertEquals(2, engine.getLineCount());
+        assertLine(engine, 1, 2, 3);
+        assertEquals(3, engine.getVisibleCount());
+        assertEquals(7, engine.getOverflowCount());
+        assertEquals(40, engine.getOverflowLeft());
+        assertEquals(HEIGHT, engine.getOverflowTop());
+        assertEquals(30, engine.getLineHeight(1));
+        assertEquals(HEIGHT + 30, height);
+    }
+
+    @Test
+    public void overflowChipEmptiesLastLine() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        engine.setMaxLines(2, 60, HEIGHT);
+        compute(engine, 100, 0, 60, 60, 60, 60);
+
+        // No Chip fits next to the overflow Chip, it's alone on the last line
+        assertEquals(2, engine.getLineCount());
+        assertLine(engine, 1, 1, 1);
+        assertEquals(1, engine.getVisibleCount());
+        assertEquals(3, engine.getOverflowCount());
+        assertEquals(0, engine.getOverflowLeft());
+        assertEquals(HEIGHT, engine.getOverflowTop());
+    }
+
+    @Test
+    public void overflowCountExcludesGoneChips() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        engine.setMaxLines(1, 30, HEIGHT);
+        compute(engine, 100, 0, 40, 40, -1, 40, -1, 40);
+
+        // Past the gone Chip, the second Chip makes room for the overflow Chip, gone ones aren't counted
+        assertEquals(1, engine.getVisibleCount());
+        assertEquals(3, engine.getOverflowCount());
+        assertEquals(40, engine.getOverflowLeft());
+    }
+
+    @Test
+    public void overflowChipWithPadding() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        engine.setMaxLines(1, 20, HEIGHT);
+        int height = engine.compute(new int[]{40, 40, 40}, heights(3), 3, 100, 10, 5, 10, 7);
+
+        // 10 + 40 + 40 + 20 + 10 is too wide, the second Chip makes room
+        assertEquals(1, engine.getVisibleCount());
+        assertEquals(2, engine.getOverflowCount());
+        assertEquals(50, engine.getOverflowLeft());
+        assertEquals(5, engine.getOverflowTop());
+        assertEquals(5 + HEIGHT + 7, height);
+    }
+
+    @Test
+    public void noLimitAfterReset() {
+        FlowLayoutEngine engine = new FlowLayoutEngine();
+        engine.setMaxLines(1, 20, HEIGHT);
+        compute(engine, 100, 0, 60, 60, 60);
+        engine.setMaxLines(0, 0, 0);
+        compute(engine, 100, 0, 60, 60, 60);
+
+        assertEquals(3, engine.getLineCount());
+        assertEquals(3, engine.getVisibleCount());
+        assertEquals(0, engine.getOverflowCount());
+    }
+
+    private static int compute(FlowLayoutEngine engine, int availableWidth, int padding, int... widths) {
+        return engine.compute(widths, heights(widths.length), widths.length, availableWidth, padding, padding, padding, padding);
+    }
+
+    private static int[] heights(int count) {
+        int[] heights = new int[count];
+        Arrays.fill(heights, HEIGHT);
+
+        return heights;
+    }
+
+    private static void assertLine(FlowLayoutEngine engine, int line, int start, int end) {
+        assertEquals("start of line " + line, start, engine.getLineStart(line));
+        assertEquals("end of line " + line, end, engine.getLineEnd(line));
+    }
+
+    private static void assertPosition(FlowLayoutEngine engine, int position, int left, int top) {
+        assertEquals("left of " + position, left, engine.getLeft(position));
+        assertEquals("top of " + position, top, engine.getTop(position));
+    }
+}
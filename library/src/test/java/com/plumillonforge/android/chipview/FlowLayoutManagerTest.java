@@ -0,0 +1,151 @@
+/*
+   Copyright 2015 Flavien Norindr (aka Plumillon Forge)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.plumillonforge.android.chipview;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Line breaks of FlowLayoutManager after adapter updates, with fixed size items
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class FlowLayoutManagerTest {
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 2000;
+    private static final int ITEM_HEIGHT = 50;
+
+    private RecyclerView mRecyclerView;
+    private WidthAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        mRecyclerView = new RecyclerView(RuntimeEnvironment.application);
+        mRecyclerView.setItemAnimator(null);
+        mRecyclerView.setLayoutManager(new FlowLayoutManager());
+        mAdapter = new WidthAdapter(300, 300, 300);
+        mRecyclerView.setAdapter(mAdapter);
+        layout();
+    }
+
+    @Test
+    public void initialLayout() {
+        assertFrame(0, 0, 0);
+        assertFrame(1, 300, 0);
+        assertFrame(2, 600, 0);
+    }
+
+    @Test
+    public void appendFitsInLastLine() {
+        mAdapter.mWidths.add(100);
+        mAdapter.notifyItemInserted(3);
+        layout();
+
+        assertFrame(3, 900, 0);
+    }
+
+    @Test
+    public void appendWrapsWhenLastLineIsFull() {
+        mAdapter.mWidths.add(100);
+        mAdapter.notifyItemInserted(3);
+        layout();
+        mAdapter.mWidths.add(200);
+        mAdapter.notifyItemInserted(4);
+        layout();
+
+        assertFrame(3, 900, 0);
+        assertFrame(4, 0, ITEM_HEIGHT);
+    }
+
+    @Test
+    public void insertInMiddle() {
+        mAdapter.mWidths.add(1, 400);
+        mAdapter.notifyItemInserted(1);
+        layout();
+
+        assertFrame(0, 0, 0);
+        assertFrame(1, 300, 0);
+        assertFrame(2, 0, ITEM_HEIGHT);
+        assertFrame(3, 300, ITEM_HEIGHT);
+    }
+
+    @Test
+    public void removeJoinsLines() {
+        mAdapter.mWidths.add(300);
+        mAdapter.notifyItemInserted(3);
+        layout();
+        assertFrame(3, 0, ITEM_HEIGHT);
+
+        mAdapter.mWidths.remove(0);
+        mAdapter.notifyItemRemoved(0);
+        layout();
+
+        assertFrame(0, 0, 0);
+        assertFrame(1, 300, 0);
+        assertFrame(2, 600, 0);
+    }
+
+    private void layout() {
+        mRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private void assertFrame(int position, int left, int top) {
+        View view = mRecyclerView.getLayoutManager().findViewByPosition(position);
+
+        assertEquals(left, view.getLeft());
+        assertEquals(top, view.getTop());
+    }
+
+    private static class WidthAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        private final List<Integer> mWidths;
+
+        WidthAdapter(Integer... widths) {
+            mWidths = new ArrayList<>(Arrays.asList(widths));
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(new View(parent.getContext())) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            holder.itemView.setLayoutParams(new RecyclerView.LayoutParams(mWidths.get(position), ITEM_HEIGHT));
+        }
+
+        @Override
+        public int getItemCount() {
+            return mWidths.size();
+        }
+    }
+}